@@ -0,0 +1,36 @@
+package benchmark;
+
+/**
+ * A single parameterized benchmark run by the BenchmarkRunner.
+ * Only the time spent inside run() is measured.
+ */
+public interface Benchmark {
+
+    /**
+     * Name of the measured operation, e.g. "update"
+     */
+    String name();
+
+    /**
+     * Human readable parameters, e.g. "30x25 fill=0.50"
+     */
+    String params();
+
+    /**
+     * Prepare the state for run(); called again whenever run() reports
+     * that the state is used up (e.g. the game ended)
+     */
+    void setup();
+
+    /**
+     * Perform up to the given number of operations
+     * @return the number of operations done; less than requested means
+     *         setup() has to be called before the next run
+     */
+    int run(int operations);
+
+    /**
+     * Release the state once the benchmark is finished
+     */
+    void tearDown();
+}
@@ -0,0 +1,245 @@
+package benchmark;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import model.AutopilotBenchmarks;
+import model.HighScoreBenchmarks;
+import model.LeaderboardBenchmarks;
+import model.ReplayBenchmarks;
+import model.SnakeGameBenchmarks;
+import view.RenderBenchmarks;
+
+/**
+ * Runs the benchmark suite and prints throughput (ops/s) and allocation
+ * (bytes per operation and MB/s) for every benchmark and parameter combination.
+ *
+ * Options:
+ *   --boards 30x25,256x256   board sizes in cells
+ *   --fills 0.01,0.5         snake fill ratios
+ *   --filter text            only run benchmarks whose name/params contain text
+ *   --warmup n               warmup iterations (default 2)
+ *   --iterations n           measured iterations (default 3)
+ *   --time ms                length of one iteration (default 1000)
+ *   --csv file               write the results as CSV
+ *   --baseline file          compare against a CSV written earlier
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_BOARDS = "30x25,256x256,1024x1024,4096x4096";
+    private static final String DEFAULT_FILLS = "0.01,0.10,0.50,0.95";
+
+    // Settings
+    private int warmupIterations = 2;
+    private int iterations = 3;
+    private long iterationNanos = 1_000_000_000L;
+
+    // Allocation counter of the current thread (HotSpot only)
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    /**
+     * Result of one benchmark
+     */
+    private static class Result {
+        final String name;
+        final String params;
+        final double opsPerSecond;
+        final double bytesPerOp;
+
+        Result(String name, String params, double opsPerSecond, double bytesPerOp) {
+            this.name = name;
+            this.params = params;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        String key() {
+            return name + " " + params;
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    public BenchmarkRunner() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.warmupIterations = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        runner.iterations = Integer.parseInt(options.getOrDefault("iterations", "3"));
+        runner.iterationNanos = Long.parseLong(options.getOrDefault("time", "1000")) * 1_000_000L;
+
+        int[][] boards = parseBoards(options.getOrDefault("boards", DEFAULT_BOARDS));
+        double[] fills = parseFills(options.getOrDefault("fills", DEFAULT_FILLS));
+        String filter = options.get("filter");
+
+        // Collect the suite
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.addAll(SnakeGameBenchmarks.create(boards, fills));
+        benchmarks.addAll(HighScoreBenchmarks.create());
+        benchmarks.addAll(LeaderboardBenchmarks.create());
+        benchmarks.addAll(ReplayBenchmarks.create());
+        benchmarks.addAll(AutopilotBenchmarks.create());
+        benchmarks.addAll(RenderBenchmarks.create());
+
+        Map<String, Result> baseline = options.containsKey("baseline")
+                ? readCsv(options.get("baseline"))
+                : Collections.<String, Result>emptyMap();
+
+        List<Result> results = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks) {
+            if (filter != null && !(benchmark.name() + " " + benchmark.params()).contains(filter)) {
+                continue;
+            }
+            Result result = runner.measure(benchmark);
+            benchmark.tearDown();
+            results.add(result);
+            print(result, baseline.get(result.key()));
+        }
+
+        if (options.containsKey("csv")) {
+            writeCsv(options.get("csv"), results);
+        }
+    }
+
+    /**
+     * Warm up and measure one benchmark
+     */
+    private Result measure(Benchmark benchmark) {
+        benchmark.setup();
+
+        // Find a batch size that makes a single run() long enough to time
+        int batch = 1;
+        while (batch < (1 << 24)) {
+            long start = System.nanoTime();
+            int done = benchmark.run(batch);
+            long elapsed = System.nanoTime() - start;
+            if (done < batch) {
+                benchmark.setup();
+            }
+            if (elapsed > 1_000_000L) {
+                break;
+            }
+            batch <<= 1;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(benchmark, batch);
+        }
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] sample = iteration(benchmark, batch);
+            totalOps += sample[0];
+            totalNanos += sample[1];
+            totalBytes += sample[2];
+        }
+
+        double opsPerSecond = totalOps * 1e9 / Math.max(1, totalNanos);
+        double bytesPerOp = threadBean == null ? Double.NaN : (double) totalBytes / Math.max(1, totalOps);
+        return new Result(benchmark.name(), benchmark.params(), opsPerSecond, bytesPerOp);
+    }
+
+    /**
+     * Run batches until the iteration time is used up
+     * @return operations, measured nanoseconds and allocated bytes
+     */
+    private long[] iteration(Benchmark benchmark, int batch) {
+        long threadId = Thread.currentThread().getId();
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+
+        while (nanos < iterationNanos) {
+            long bytesBefore = threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int done = benchmark.run(batch);
+            nanos += System.nanoTime() - start;
+            bytes += threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+            ops += done;
+
+            if (done < batch) {
+                benchmark.setup();
+            }
+        }
+        return new long[] {ops, nanos, bytes};
+    }
+
+    private static void print(Result result, Result base) {
+        String line = String.format(Locale.ROOT, "%-20s %-28s %16.1f ops/s %12.1f B/op %10.1f MB/s",
+                result.name, result.params, result.opsPerSecond, result.bytesPerOp,
+                result.bytesPerOp * result.opsPerSecond / (1024 * 1024));
+        if (base != null) {
+            line += String.format(Locale.ROOT, "  %+7.1f%%",
+                    (result.opsPerSecond / base.opsPerSecond - 1) * 100);
+        }
+        System.out.println(line);
+    }
+
+    private static void writeCsv(String file, List<Result> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("name,params,opsPerSecond,bytesPerOp");
+            for (Result r : results) {
+                out.printf(Locale.ROOT, "%s,%s,%.3f,%.3f%n", r.name, r.params, r.opsPerSecond, r.bytesPerOp);
+            }
+        }
+    }
+
+    private static Map<String, Result> readCsv(String file) throws IOException {
+        Map<String, Result> results = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            in.readLine(); // header
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(",");
+                Result r = new Result(parts[0], parts[1],
+                        Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+                results.put(r.key(), r);
+            }
+        }
+        return results;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static int[][] parseBoards(String value) {
+        String[] parts = value.split(",");
+        int[][] boards = new int[parts.length][];
+        for (int i = 0; i < parts.length; i++) {
+            String[] size = parts[i].trim().split("x");
+            boards[i] = new int[] {Integer.parseInt(size[0]), Integer.parseInt(size[1])};
+        }
+        return boards;
+    }
+
+    private static double[] parseFills(String value) {
+        String[] parts = value.split(",");
+        double[] fills = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            fills[i] = Double.parseDouble(parts[i].trim());
+        }
+        return fills;
+    }
+}
@@ -0,0 +1,101 @@
+package controller;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import model.GameEngine;
+import model.SnakeGame;
+
+/**
+ * Scaling check for GameHost: hosts many games played by a cheap bot that
+ * turns at random and starts over when it dies, at a time scale so high
+ * that the games want far more ticks than the workers can run. For 1, 2,
+ * 4, ... workers up to the number of cores, prints the ticks run per
+ * second, the ticks dropped by games that fell behind and the lateness of
+ * the ticks over all shards.
+ *
+ * Usage: java -cp out/bench controller.GameHostScaling [games] [seconds per run]
+ */
+public class GameHostScaling {
+    private static final int COLUMNS = 30;
+    private static final int ROWS = 25;
+    private static final int CELL_SIZE = 20;
+    private static final double TIME_SCALE = 1000;
+    private static final long WARMUP_MILLIS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf(Locale.ROOT, "%d games, %d cores%n", games, cores);
+        System.out.printf(Locale.ROOT, "%8s %14s %12s %12s %12s%n",
+                "workers", "ticks/s", "dropped/s", "mean lag ms", "max lag ms");
+        for (int workers = 1; ; workers *= 2) {
+            run(Math.min(workers, cores), games, seconds);
+            if (workers >= cores) {
+                break;
+            }
+        }
+    }
+
+    private static void run(int workers, int games, double seconds) throws InterruptedException {
+        try (GameHost host = new GameHost(workers, games, Long.MAX_VALUE)) {
+            host.setTimeScale(TIME_SCALE);
+            for (int i = 0; i < games; i++) {
+                SnakeGame game = new SnakeGame(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE, CELL_SIZE, false);
+                game.resetGame(i);
+                host.add(game, new RandomBot(i));
+            }
+
+            Thread.sleep(WARMUP_MILLIS);
+            for (int shard = 0; shard < host.getShardCount(); shard++) {
+                host.getShardStats(shard).reset();
+            }
+            long start = System.nanoTime();
+            Thread.sleep((long) (seconds * 1000));
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            long ticks = 0;
+            long dropped = 0;
+            double lagSum = 0;
+            double maxLag = 0;
+            for (int shard = 0; shard < host.getShardCount(); shard++) {
+                TickJitterStats stats = host.getShardStats(shard);
+                ticks += stats.getTicks();
+                dropped += stats.getDroppedTicks();
+                lagSum += stats.getMeanMillis() * stats.getTicks();
+                maxLag = Math.max(maxLag, stats.getMaxMillis());
+            }
+            System.out.printf(Locale.ROOT, "%8d %14.0f %12.0f %12.2f %12.2f%n",
+                    workers, ticks / elapsed, dropped / elapsed, ticks > 0 ? lagSum / ticks : 0, maxLag);
+        }
+    }
+
+    /**
+     * Turns at random every few ticks and starts a new game after dying
+     */
+    private static class RandomBot implements GameHost.Session {
+        private static final SnakeGame.Direction[] DIRECTIONS = SnakeGame.Direction.values();
+        private final SplittableRandom random;
+
+        RandomBot(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public void beforeTick(SnakeGame game) {
+            if (random.nextInt(8) == 0) {
+                game.changeDirection(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            }
+        }
+
+        @Override
+        public boolean afterTick(SnakeGame game, GameEngine.StepResult result) {
+            if (game.isGameOver()) {
+                game.resetGame(random.nextLong());
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package model;
+
+import java.util.Locale;
+
+import metrics.Histogram;
+
+/**
+ * Tick time check for the arena: 1,000 ArenaBot snakes and 4,000 food
+ * items on a 2048x2048 board by default. For 1, 2, 4, ... planning threads
+ * up to the number of cores, plays the same seeded arena and prints the
+ * tick time percentiles against the 16.7 ms budget of a 60 Hz tick, and
+ * checks that every thread count ends in the same state.
+ *
+ * Usage: java -cp out/bench model.ArenaScaling [snakes] [size] [ticks]
+ */
+public class ArenaScaling {
+    private static final long SEED = 42;
+    private static final int WARMUP_TICKS = 500;
+    private static final double BUDGET_MILLIS = 1000.0 / 60;
+
+    public static void main(String[] args) {
+        int snakes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 3000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf(Locale.ROOT, "%d snakes on %dx%d, %d ticks, %d cores%n", snakes, size, size, ticks, cores);
+        System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s %8s %18s%n",
+                "threads", "mean ms", "p99 ms", "max ms", "ticks/s", "deaths", "checksum");
+        Long expected = null;
+        boolean same = true;
+        for (int threads = 1; ; threads *= 2) {
+            long checksum = run(Math.min(threads, cores), snakes, size, ticks);
+            if (expected == null) {
+                expected = checksum;
+            }
+            same &= checksum == expected;
+            if (threads >= cores) {
+                break;
+            }
+        }
+        System.out.println(same ? "Same state on every thread count" : "DIFFERENT states");
+        if (!same) {
+            System.exit(1);
+        }
+    }
+
+    private static long run(int threads, int snakes, int size, int ticks) {
+        Histogram tickTimes = new Histogram("arenaTick", "Time of one arena tick");
+        try (Arena arena = new Arena(size, size, snakes * 4, SEED, threads)) {
+            ArenaBot bot = new ArenaBot();
+            for (int i = 0; i < snakes; i++) {
+                arena.addSnake(bot);
+            }
+            for (int i = 0; i < WARMUP_TICKS; i++) {
+                arena.step();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                long tickStart = System.nanoTime();
+                arena.step();
+                tickTimes.recordSince(tickStart);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            long deaths = 0;
+            for (int i = 0; i < snakes; i++) {
+                deaths += arena.getDeaths(i);
+            }
+            long checksum = arena.checksum();
+            System.out.printf(Locale.ROOT, "%8d %10.3f %10.3f %10.3f %10.0f %8d %18x%s%n",
+                    threads, tickTimes.getMeanMillis(), tickTimes.getP99Millis(),
+                    tickTimes.getMaxMillis(), ticks / elapsed, deaths, checksum,
+                    tickTimes.getP99Millis() <= BUDGET_MILLIS ? "" : "  over 60 Hz budget");
+            return checksum;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import benchmark.Benchmark;
+
+/**
+ * Benchmarks for the Autopilot planner. Planning runs on a fixed position:
+ * the snake laid out along the serpentine path (see SnakeGameBenchmarks)
+ * covering part of the board, with the food on a random free cell, so one
+ * operation is one full plan (food path, safety check and, when the food is
+ * unsafe, the waiting move). Playing measures whole ticks of games the
+ * autopilot plays on the default board, starting over when one ends.
+ */
+public class AutopilotBenchmarks {
+    private static final int[][] BOARDS = {{30, 25}, {256, 256}, {1024, 1024}};
+    private static final double[] FILLS = {0.01, 0.5};
+    private static final long SEED = 42;
+
+    /**
+     * Create the autopilot benchmarks
+     */
+    public static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int[] board : BOARDS) {
+            for (double fill : FILLS) {
+                benchmarks.add(new PlanBenchmark(board[0], board[1], fill));
+            }
+        }
+        benchmarks.add(new PlayBenchmark(30, 25));
+        return benchmarks;
+    }
+
+    /**
+     * Plan one move from a fixed position
+     */
+    static class PlanBenchmark extends SnakeGameBenchmarks.GameBenchmark {
+        private Autopilot autopilot;
+
+        PlanBenchmark(int columns, int rows, double fill) {
+            super(columns, rows, fill);
+        }
+
+        @Override
+        public String name() {
+            return "autopilot plan";
+        }
+
+        @Override
+        public void setup() {
+            super.setup();
+            autopilot = new Autopilot();
+            autopilot.reset(game);
+            autopilot.nextDirection(game);
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                SnakeGame.Direction direction = autopilot.nextDirection(game);
+                sum += direction == null ? -1 : direction.ordinal();
+            }
+            SnakeGameBenchmarks.sink = sum;
+            return operations;
+        }
+
+        @Override
+        public void tearDown() {
+            super.tearDown();
+            autopilot = null;
+        }
+    }
+
+    /**
+     * One tick of a game steered by the autopilot, including the plan
+     */
+    static class PlayBenchmark implements Benchmark {
+        private final int columns;
+        private final int rows;
+        private GameEngine engine;
+        private Autopilot autopilot;
+        private long games;
+
+        PlayBenchmark(int columns, int rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public String name() {
+            return "autopilot play";
+        }
+
+        @Override
+        public String params() {
+            return columns + "x" + rows;
+        }
+
+        @Override
+        public void setup() {
+            if (engine == null) {
+                engine = new GameEngine(columns, rows);
+                engine.getGame().setReplayRecording(false);
+                autopilot = new Autopilot();
+                newGame();
+            }
+        }
+
+        private void newGame() {
+            engine.reset(SelfPlayEvaluator.seed(SEED, (int) games++));
+            autopilot.reset(engine.getGame());
+        }
+
+        @Override
+        public int run(int operations) {
+            SnakeGame game = engine.getGame();
+            for (int i = 0; i < operations; i++) {
+                if (engine.step(autopilot.nextDirection(game)) == GameEngine.StepResult.IDLE
+                        || game.isGameOver()) {
+                    newGame();
+                }
+            }
+            SnakeGameBenchmarks.sink = game.getScore();
+            return operations;
+        }
+
+        @Override
+        public void tearDown() {
+            engine = null;
+            autopilot = null;
+        }
+    }
+}
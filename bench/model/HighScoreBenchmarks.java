@@ -0,0 +1,234 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import benchmark.Benchmark;
+
+/**
+ * Benchmarks for adding high scores, including saving the list to disk,
+ * and for saving and loading whole lists in the binary format against
+ * Java serialization. Scores are written to temporary files, never to
+ * highscores.dat.
+ */
+public class HighScoreBenchmarks {
+    private static final int[] LIST_SIZES = {10, 10_000, 1_000_000};
+
+    /**
+     * File formats to compare
+     */
+    enum Format {
+        BINARY, SERIALIZED
+    }
+
+    /**
+     * Create the high score benchmarks
+     */
+    public static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new AddHighScoreBenchmark());
+        for (Format format : Format.values()) {
+            for (int size : LIST_SIZES) {
+                benchmarks.add(new SaveBenchmark(format, size));
+                benchmarks.add(new LoadBenchmark(format, size));
+            }
+        }
+        return benchmarks;
+    }
+
+    /**
+     * addHighScore(name, score) on a growing leaderboard; the scores are
+     * saved on the writer's background thread, which coalesces most of the
+     * saves
+     */
+    static class AddHighScoreBenchmark implements Benchmark {
+        private File file;
+        private SnakeGame game;
+
+        @Override
+        public String name() {
+            return "addHighScore";
+        }
+
+        private static final int MAX_ENTRIES = 100_000;
+
+        @Override
+        public String params() {
+            return "up to " + MAX_ENTRIES + " entries";
+        }
+
+        @Override
+        public void setup() {
+            if (game != null) {
+                // Starting over: reuse the file once the last saves are done
+                game.getHighScoreWriter().flush();
+            } else {
+                try {
+                    file = File.createTempFile("highscores", ".dat");
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot create temporary high score file", e);
+                }
+            }
+
+            String previous = System.getProperty("snake.highscores");
+            System.setProperty("snake.highscores", file.getPath());
+            try {
+                game = new SnakeGame(30, 25, 1, false);
+            } finally {
+                if (previous == null) {
+                    System.clearProperty("snake.highscores");
+                } else {
+                    System.setProperty("snake.highscores", previous);
+                }
+            }
+        }
+
+        @Override
+        public int run(int operations) {
+            // Start over with an empty leaderboard once it holds enough entries
+            int count = Math.min(operations, MAX_ENTRIES - game.getLeaderboard().size());
+            for (int i = 0; i < count; i++) {
+                game.addHighScore("Bench", i % 1000);
+            }
+            SnakeGameBenchmarks.sink = game.getHighScores().size();
+            return count;
+        }
+
+        @Override
+        public void tearDown() {
+            // Saves run in the background; let them finish before deleting
+            game.getHighScoreWriter().flush();
+            file.delete();
+            game = null;
+        }
+    }
+
+    /**
+     * Create a list of scores with varied names and scores
+     */
+    static List<HighScore> createScores(int size) {
+        List<HighScore> scores = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            scores.add(new HighScore("Player " + i, size - i, 1_700_000_000_000L + i));
+        }
+        return scores;
+    }
+
+    /**
+     * Common fixture: a list of scores and a temporary file
+     */
+    abstract static class FileBenchmark implements Benchmark {
+        final Format format;
+        final int size;
+        List<HighScore> scores;
+        Path file;
+
+        FileBenchmark(Format format, int size) {
+            this.format = format;
+            this.size = size;
+        }
+
+        @Override
+        public String params() {
+            long bytes = 0;
+            try {
+                bytes = file == null || !Files.exists(file) ? 0 : Files.size(file);
+            } catch (IOException e) {
+                // Only used for the description
+            }
+            return String.format(Locale.ROOT, "%s entries=%d file=%dKB",
+                    format.name().toLowerCase(Locale.ROOT), size, bytes / 1024);
+        }
+
+        @Override
+        public void setup() {
+            scores = createScores(size);
+            try {
+                file = Files.createTempFile("highscores", ".dat");
+                save();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create temporary high score file", e);
+            }
+        }
+
+        void save() throws IOException {
+            if (format == Format.BINARY) {
+                HighScoreFile.write(file, scores);
+            } else {
+                HighScoreFile.writeLegacy(file, scores);
+            }
+        }
+
+        List<HighScore> load() throws IOException {
+            return format == Format.BINARY ? HighScoreFile.read(file) : HighScoreFile.readLegacy(file);
+        }
+
+        @Override
+        public void tearDown() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Temporary file, nothing else to do
+            }
+            scores = null;
+        }
+    }
+
+    /**
+     * Save a whole list of scores
+     */
+    static class SaveBenchmark extends FileBenchmark {
+        SaveBenchmark(Format format, int size) {
+            super(format, size);
+        }
+
+        @Override
+        public String name() {
+            return "saveHighScores";
+        }
+
+        @Override
+        public int run(int operations) {
+            try {
+                for (int i = 0; i < operations; i++) {
+                    save();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return operations;
+        }
+    }
+
+    /**
+     * Load a whole list of scores
+     */
+    static class LoadBenchmark extends FileBenchmark {
+        LoadBenchmark(Format format, int size) {
+            super(format, size);
+        }
+
+        @Override
+        public String name() {
+            return "loadHighScores";
+        }
+
+        @Override
+        public int run(int operations) {
+            try {
+                for (int i = 0; i < operations; i++) {
+                    SnakeGameBenchmarks.sink = load().size();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return operations;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Stress check for HighScoreJournal: starts many writer processes that
+ * append to the same journal at once, each in small random batches while
+ * tailing the others, then checks that every score made it into the file
+ * exactly once, in each writer's order, and that every writer received the
+ * others' scores in order without gaps or duplicates. Then checks that a
+ * corrupt record in the middle of a journal is skipped without losing the
+ * records after it, and that a torn record at the end is cut off.
+ *
+ * Usage: java -cp out/bench model.HighScoreJournalStress [processes] [scores per process]
+ */
+public class HighScoreJournalStress {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--writer")) {
+            runWriter(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int scoresPerProcess = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Path file = Files.createTempFile("highscores", ".journal");
+        Files.delete(file);
+
+        try {
+            long start = System.nanoTime();
+            List<Process> writers = new ArrayList<>();
+            for (int id = 0; id < processes; id++) {
+                writers.add(new ProcessBuilder(
+                        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", System.getProperty("java.class.path"),
+                        HighScoreJournalStress.class.getName(), "--writer",
+                        file.toString(), String.valueOf(id), String.valueOf(scoresPerProcess))
+                        .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            boolean failed = false;
+            for (Process writer : writers) {
+                failed |= writer.waitFor() != 0;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            failed |= !verify(file, processes, scoresPerProcess);
+            System.out.printf(Locale.ROOT, "%d processes x %d scores in %.2fs (%.0f scores/s): %s%n",
+                    processes, scoresPerProcess, seconds, processes * scoresPerProcess / seconds,
+                    failed ? "FAILED" : "OK");
+
+            boolean corruptOk = checkCorruption();
+            System.out.println("Corrupt and torn records: " + (corruptOk ? "OK" : "FAILED"));
+            failed |= !corruptOk;
+            if (failed) {
+                System.exit(1);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Check that the journal holds every writer's scores exactly once and in
+     * each writer's order
+     */
+    private static boolean verify(Path file, int processes, int scoresPerProcess) throws IOException {
+        HighScoreJournal journal = HighScoreJournal.open(file, true);
+        journal.poll();
+        int[] next = new int[processes];
+        boolean[] ok = {true};
+        journal.drainReceived(score -> {
+            // The score is the writer's id, the timestamp its sequence number
+            int id = score.getScore();
+            if (id < 0 || id >= processes || score.getTimestamp() != next[id]
+                    || !score.getPlayerName().equals("Writer " + id + " #" + next[id])) {
+                System.err.println("Unexpected score: " + score.getPlayerName());
+                ok[0] = false;
+                return;
+            }
+            next[id]++;
+        });
+        journal.close();
+
+        for (int id = 0; id < processes; id++) {
+            if (next[id] != scoresPerProcess) {
+                System.err.println("Writer " + id + ": " + next[id] + " of " + scoresPerProcess + " scores found");
+                ok[0] = false;
+            }
+        }
+        return ok[0];
+    }
+
+    /**
+     * Corrupt two records in the middle of a journal (a name byte, so the
+     * CRC fails, and a length), append from another journal, then tear a
+     * record at the end and append again. Every other record must survive.
+     */
+    private static boolean checkCorruption() throws IOException {
+        Path file = Files.createTempFile("highscores", ".journal");
+        Files.delete(file);
+        try {
+            // Records 0 to 4, remembering where each one starts
+            long[] offsets = new long[5];
+            HighScoreJournal journal = HighScoreJournal.open(file, true);
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = Files.size(file);
+                journal.append(Collections.singletonList(new HighScore("Record " + i, i, i)));
+            }
+            journal.close();
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ByteBuffer name = ByteBuffer.wrap("X".getBytes(StandardCharsets.UTF_8));
+                channel.write(name, offsets[1] + 16);
+                ByteBuffer length = ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE);
+                channel.write(length, offsets[3]);
+            }
+
+            journal = HighScoreJournal.open(file, false);
+            journal.append(Collections.singletonList(new HighScore("Record 5", 5, 5)));
+            journal.close();
+
+            // Half a record at the end, as if a writer crashed
+            ByteBuffer torn = HighScoreJournal.encode(Collections.singletonList(new HighScore("Torn", 99, 99)));
+            torn.limit(torn.limit() / 2);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(torn);
+            }
+
+            journal = HighScoreJournal.open(file, false);
+            journal.append(Collections.singletonList(new HighScore("Record 6", 6, 6)));
+            journal.close();
+
+            List<Integer> found = new ArrayList<>();
+            journal = HighScoreJournal.open(file, true);
+            journal.poll();
+            journal.drainReceived(score -> found.add(score.getScore()));
+            journal.close();
+            if (!found.equals(Arrays.asList(0, 2, 4, 5, 6))) {
+                System.err.println("Records found after corruption: " + found);
+                return false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * One writer process: append in random batches, tailing in between.
+     * The other writers' scores must arrive in order, without gaps or
+     * duplicates, and the writer's own scores must be skipped.
+     */
+    private static void runWriter(Path file, int id, int count) throws IOException {
+        Random random = new Random(id);
+        HighScoreJournal journal = HighScoreJournal.open(file, true);
+        Map<Integer, Integer> next = new HashMap<>();
+        boolean[] ok = {true};
+        int written = 0;
+        while (written < count) {
+            List<HighScore> batch = new ArrayList<>();
+            int size = Math.min(count - written, 1 + random.nextInt(8));
+            for (int i = 0; i < size; i++, written++) {
+                batch.add(new HighScore("Writer " + id + " #" + written, id, written));
+            }
+            journal.append(batch);
+            if (random.nextInt(4) == 0) {
+                journal.poll();
+            }
+            journal.drainReceived(score -> {
+                int expected = next.getOrDefault(score.getScore(), 0);
+                if (score.getScore() == id || score.getTimestamp() != expected) {
+                    System.err.println("Writer " + id + " received unexpected score: " + score.getPlayerName());
+                    ok[0] = false;
+                }
+                next.put(score.getScore(), expected + 1);
+            });
+        }
+        journal.close();
+        if (!ok[0]) {
+            System.exit(1);
+        }
+    }
+}
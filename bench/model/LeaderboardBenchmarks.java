@@ -0,0 +1,188 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+
+/**
+ * Benchmarks for the leaderboard queries on boards of 10k and 1M scores:
+ * adding a score, the top 10, the rank of a score and the scores around a
+ * player.
+ */
+public class LeaderboardBenchmarks {
+    private static final int[] SIZES = {10_000, 1_000_000};
+    private static final int PLAYERS = 10_000;
+    private static final int MAX_SCORE = 100_000;
+
+    /**
+     * Create the leaderboard benchmarks
+     */
+    public static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int size : SIZES) {
+            benchmarks.add(new AddBenchmark(size));
+            benchmarks.add(new TopBenchmark(size));
+            benchmarks.add(new RankOfBenchmark(size));
+            benchmarks.add(new AroundBenchmark(size));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Common fixture: a leaderboard of random scores by a fixed set of players
+     */
+    abstract static class LeaderboardBenchmark implements Benchmark {
+        final int size;
+        final Random random = new Random(42);
+        TreeLeaderboard leaderboard;
+
+        LeaderboardBenchmark(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public String params() {
+            return "entries=" + size;
+        }
+
+        @Override
+        public void setup() {
+            List<HighScore> scores = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                scores.add(randomScore(i));
+            }
+            leaderboard = new TreeLeaderboard(scores);
+        }
+
+        HighScore randomScore(long timestamp) {
+            return new HighScore("Player " + random.nextInt(PLAYERS), random.nextInt(MAX_SCORE), timestamp);
+        }
+
+        @Override
+        public void tearDown() {
+            leaderboard = null;
+        }
+    }
+
+    /**
+     * Add a score; the board is rebuilt after every size / 10 adds so it
+     * stays close to its nominal size
+     */
+    static class AddBenchmark extends LeaderboardBenchmark {
+        private HighScore[] pending;
+        private int added;
+
+        AddBenchmark(int size) {
+            super(size);
+        }
+
+        @Override
+        public String name() {
+            return "leaderboard add";
+        }
+
+        @Override
+        public void setup() {
+            super.setup();
+            pending = new HighScore[size / 10];
+            for (int i = 0; i < pending.length; i++) {
+                pending[i] = randomScore(size + i);
+            }
+            added = 0;
+        }
+
+        @Override
+        public int run(int operations) {
+            int count = Math.min(operations, pending.length - added);
+            for (int i = 0; i < count; i++) {
+                leaderboard.add(pending[added++]);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The top 10 scores
+     */
+    static class TopBenchmark extends LeaderboardBenchmark {
+        TopBenchmark(int size) {
+            super(size);
+        }
+
+        @Override
+        public String name() {
+            return "leaderboard top10";
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                sum += leaderboard.top(10).size();
+            }
+            SnakeGameBenchmarks.sink = sum;
+            return operations;
+        }
+    }
+
+    /**
+     * Rank of a random score
+     */
+    static class RankOfBenchmark extends LeaderboardBenchmark {
+        RankOfBenchmark(int size) {
+            super(size);
+        }
+
+        @Override
+        public String name() {
+            return "leaderboard rankOf";
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                sum += leaderboard.rankOf(random.nextInt(MAX_SCORE));
+            }
+            SnakeGameBenchmarks.sink = sum;
+            return operations;
+        }
+    }
+
+    /**
+     * The 5 scores above and below a random player's best score
+     */
+    static class AroundBenchmark extends LeaderboardBenchmark {
+        private String[] players;
+
+        AroundBenchmark(int size) {
+            super(size);
+        }
+
+        @Override
+        public String name() {
+            return "leaderboard around";
+        }
+
+        @Override
+        public void setup() {
+            super.setup();
+            players = new String[PLAYERS];
+            for (int i = 0; i < PLAYERS; i++) {
+                players[i] = "Player " + i;
+            }
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                sum += leaderboard.around(players[random.nextInt(PLAYERS)], 5).size();
+            }
+            SnakeGameBenchmarks.sink = sum;
+            return operations;
+        }
+    }
+}
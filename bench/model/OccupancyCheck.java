@@ -0,0 +1,126 @@
+package model;
+
+import java.util.Locale;
+import java.util.Random;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Equivalence check for OccupancyGrid: plays seeded random games (steered
+ * greedily towards the food with random turns mixed in, so snakes grow
+ * long and also run into themselves) and compares the grid with a linear
+ * scan of the snake's cells, as checkCollisions() used to do. Every tick
+ * the collision outcome must match a scan of the body as it was before the
+ * move, and every few ticks isCellFree() must match a scan for every cell.
+ *
+ * Usage: java -cp out/bench model.OccupancyCheck [games per board] [seed]
+ */
+public class OccupancyCheck {
+    // Includes odd sizes, so cell indices cross the grid's 64-bit words
+    // at every position
+    private static final int[][] BOARDS = {{30, 25}, {10, 10}, {7, 13}, {64, 64}};
+    private static final long MAX_TICKS = 20_000;
+    private static final int SWEEP_TICKS = 7;
+    private static final int RANDOM_TURN_ODDS = 8;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        long ticks = 0;
+        long sweeps = 0;
+        long deaths = 0;
+        int mismatches = 0;
+        for (int[] board : BOARDS) {
+            GameEngine engine = new GameEngine(board[0], board[1]);
+            SnakeGame game = engine.getGame();
+            game.setReplayRecording(false);
+            GreedyStrategy greedy = new GreedyStrategy();
+            int[] before = new int[board[0] * board[1]];
+
+            for (int i = 0; i < games; i++) {
+                long gameSeed = SelfPlayEvaluator.seed(seed, i);
+                Random random = new Random(gameSeed);
+                engine.reset(gameSeed);
+                greedy.reset(game);
+                mismatches += sweep(game, board[0], board[1]);
+
+                while (game.getTicks() < MAX_TICKS) {
+                    SnakeBuffer snake = game.getSnake();
+                    int length = snake.length();
+                    for (int j = 0; j < length; j++) {
+                        before[j] = snake.get(j);
+                    }
+
+                    Direction direction = random.nextInt(RANDOM_TURN_ODDS) == 0
+                            ? DIRECTIONS[random.nextInt(DIRECTIONS.length)] : greedy.nextDirection(game);
+                    GameEngine.StepResult result = engine.step(direction);
+                    ticks++;
+
+                    // The head hits the body as it was before the move
+                    SnakeHead head = game.getSnakeHead();
+                    boolean hit = contains(before, length, SnakeBuffer.pack(head.getX(), head.getY()));
+                    if (hit != (result == GameEngine.StepResult.DIED)) {
+                        System.err.printf(Locale.ROOT, "%dx%d game %d tick %d: scan says %s, grid says %s%n",
+                                board[0], board[1], i, game.getTicks(), hit ? "hit" : "no hit", result);
+                        mismatches++;
+                    }
+                    if (result == GameEngine.StepResult.DIED) {
+                        deaths++;
+                    }
+                    if (result == GameEngine.StepResult.DIED || result == GameEngine.StepResult.WON
+                            || game.getTicks() % SWEEP_TICKS == 0) {
+                        mismatches += sweep(game, board[0], board[1]);
+                        sweeps++;
+                    }
+                    if (result == GameEngine.StepResult.DIED || result == GameEngine.StepResult.WON
+                            || result == GameEngine.StepResult.IDLE) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%d games on %d boards, %d ticks, %d deaths, %d board sweeps: %s%n",
+                games * BOARDS.length, BOARDS.length, ticks, deaths, sweeps,
+                mismatches == 0 ? "OK" : mismatches + " mismatches");
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare isCellFree() with a scan of the snake for every cell
+     * @return the number of cells that differ
+     */
+    private static int sweep(SnakeGame game, int columns, int rows) {
+        SnakeBuffer snake = game.getSnake();
+        int mismatches = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                boolean occupied = false;
+                for (int i = 0; i < snake.length() && !occupied; i++) {
+                    occupied = snake.getX(i) == x && snake.getY(i) == y;
+                }
+                if (occupied == game.isCellFree(x, y)) {
+                    System.err.printf(Locale.ROOT, "%dx%d tick %d: cell (%d, %d) is %s but the grid says %s%n",
+                            columns, rows, game.getTicks(), x, y, occupied ? "occupied" : "free",
+                            occupied ? "free" : "occupied");
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static boolean contains(int[] cells, int length, int cell) {
+        for (int i = 0; i < length; i++) {
+            if (cells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
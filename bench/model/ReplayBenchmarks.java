@@ -0,0 +1,175 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmark.Benchmark;
+
+/**
+ * Benchmarks for playing replays back headlessly and seeking in them.
+ * Playback uses a replay recorded from a game steered greedily towards the
+ * food, avoiding the snake where it can, so it has many turns and ends by
+ * the snake running into itself. One operation plays the whole replay back;
+ * ticks/s is the reported ops/s times the ticks in the params.
+ * Seeking uses a long replay of a snake following a path through every cell
+ * (see SnakeGameBenchmarks.Serpentine), which never dies.
+ */
+public class ReplayBenchmarks {
+    private static final int[][] BOARDS = {{30, 25}, {256, 256}};
+    private static final long SEED = 42;
+    private static final long MAX_TICKS = 1_000_000;
+
+    // Board for the long replay; half the columns must be odd so the snake
+    // starts on an upward column of the path
+    private static final int[] LONG_BOARD = {62, 50};
+    private static final long LONG_TICKS = 2_000_000;
+
+    /**
+     * Create the replay benchmarks
+     */
+    public static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int[] board : BOARDS) {
+            benchmarks.add(new PlayBenchmark(board[0], board[1]));
+        }
+        benchmarks.add(new SeekBenchmark(LONG_BOARD[0], LONG_BOARD[1], LONG_TICKS));
+        return benchmarks;
+    }
+
+    /**
+     * Record a game following the serpentine path for the given number of
+     * ticks (or until the snake fills the board)
+     */
+    static Replay recordSerpentine(int columns, int rows, long seed, long ticks) {
+        GameEngine engine = new GameEngine(columns, rows);
+        SnakeGame game = engine.getGame();
+        SnakeGameBenchmarks.Serpentine path = new SnakeGameBenchmarks.Serpentine(columns, rows);
+        engine.reset(seed);
+        while (game.getTicks() < ticks) {
+            SnakeHead head = game.getSnakeHead();
+            if (engine.step(path.nextDirection(head.getX(), head.getY())) == GameEngine.StepResult.IDLE) {
+                break;
+            }
+        }
+        return game.getReplay();
+    }
+
+    /**
+     * Record a game steered by the GreedyStrategy
+     */
+    static Replay record(int columns, int rows, long seed) {
+        GameEngine engine = new GameEngine(columns, rows);
+        SnakeGame game = engine.getGame();
+        Strategy strategy = new GreedyStrategy();
+        engine.reset(seed);
+        while (game.getTicks() < MAX_TICKS && engine.step(strategy.nextDirection(game)) != GameEngine.StepResult.IDLE) {
+            // Play until the snake dies or fills the board
+        }
+        return game.getReplay();
+    }
+
+    /**
+     * Play the recorded replay back, reusing one game
+     */
+    static class PlayBenchmark implements Benchmark {
+        private final int columns;
+        private final int rows;
+        private Replay replay;
+        private GameEngine engine;
+
+        PlayBenchmark(int columns, int rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public String name() {
+            return "replay play";
+        }
+
+        @Override
+        public String params() {
+            return columns + "x" + rows;
+        }
+
+        @Override
+        public void setup() {
+            if (replay == null) {
+                replay = record(columns, rows, SEED);
+                engine = new GameEngine(columns, rows);
+            }
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                ReplayPlayer.Result result = ReplayPlayer.play(engine, replay);
+                if (!result.isVerified()) {
+                    throw new IllegalStateException("Replay diverged: " + result);
+                }
+                sum += result.getScore();
+            }
+            SnakeGameBenchmarks.sink = sum;
+            return operations;
+        }
+
+        @Override
+        public void tearDown() {
+            replay = null;
+            engine = null;
+        }
+    }
+
+    /**
+     * Seek to a random tick of a long replay
+     */
+    static class SeekBenchmark implements Benchmark {
+        private final int columns;
+        private final int rows;
+        private final long ticks;
+        private final Random random = new Random(42);
+        private ReplayPlayer player;
+
+        SeekBenchmark(int columns, int rows, long ticks) {
+            this.columns = columns;
+            this.rows = rows;
+            this.ticks = ticks;
+        }
+
+        @Override
+        public String name() {
+            return "replay seek";
+        }
+
+        @Override
+        public String params() {
+            return columns + "x" + rows + " ticks=" + ticks;
+        }
+
+        @Override
+        public void setup() {
+            if (player == null) {
+                player = new ReplayPlayer(recordSerpentine(columns, rows, SEED, ticks));
+            }
+        }
+
+        @Override
+        public int run(int operations) {
+            long sum = 0;
+            long length = player.getReplay().getTicks();
+            for (int i = 0; i < operations; i++) {
+                player.seek((long) (random.nextDouble() * length));
+                sum += player.getGame().getScore();
+            }
+            SnakeGameBenchmarks.sink = (int) sum;
+            return operations;
+        }
+
+        @Override
+        public void tearDown() {
+            player = null;
+        }
+    }
+}
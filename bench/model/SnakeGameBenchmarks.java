@@ -0,0 +1,239 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import benchmark.Benchmark;
+import model.SnakeGame.Direction;
+
+/**
+ * Benchmarks for the SnakeGame hot paths: update(), spawnFood() and
+ * checkCollisions(), parameterized by board size and snake fill ratio.
+ *
+ * The snake is laid out along a serpentine path that, on a board with an
+ * even number of columns (or rows), closes into a cycle through the wrap
+ * around. Steering along that path the snake can run forever.
+ */
+public class SnakeGameBenchmarks {
+    // Keeps results alive so the JIT cannot drop the measured work
+    static volatile int sink;
+
+    /**
+     * Create the benchmarks for every board and fill combination
+     */
+    public static List<Benchmark> create(int[][] boards, double[] fills) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int[] board : boards) {
+            for (double fill : fills) {
+                benchmarks.add(new UpdateBenchmark(board[0], board[1], fill));
+                benchmarks.add(new SpawnFoodBenchmark(board[0], board[1], fill));
+                benchmarks.add(new CheckCollisionsBenchmark(board[0], board[1], fill));
+            }
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Lay the snake of a game out along the serpentine path so that it
+     * covers the given fraction of the board (leaving at least one free cell)
+     * @return the path the snake follows
+     */
+    public static Serpentine fillSnake(SnakeGame game, double fill) {
+        int columns = game.getBoardWidth() / game.getCellSize();
+        int rows = game.getBoardHeight() / game.getCellSize();
+        Serpentine path = new Serpentine(columns, rows);
+
+        long cellCount = (long) columns * rows;
+        int length = (int) Math.max(4, Math.min(cellCount - 1, (long) (cellCount * fill)));
+
+        // Tail at path position 0, head at path position length - 1
+        int[] cells = new int[length];
+        for (int i = 0; i < length; i++) {
+            cells[i] = path.cell(length - 1 - i);
+        }
+        game.setSnake(cells, length, path.nextDirection(SnakeBuffer.unpackX(cells[0]), SnakeBuffer.unpackY(cells[0])));
+        return path;
+    }
+
+    /**
+     * Path through every cell of the board, column by column (or row by row
+     * if only the number of rows is even)
+     */
+    public static class Serpentine {
+        private final int columns;
+        private final int rows;
+        private final boolean byColumns;
+
+        Serpentine(int columns, int rows) {
+            this.columns = columns;
+            this.rows = rows;
+            this.byColumns = columns % 2 == 0 || rows % 2 != 0;
+        }
+
+        /**
+         * Packed cell at the given position along the path
+         */
+        int cell(int position) {
+            if (byColumns) {
+                int x = position / rows;
+                int offset = position % rows;
+                return SnakeBuffer.pack(x, x % 2 == 0 ? offset : rows - 1 - offset);
+            }
+            int y = position / columns;
+            int offset = position % columns;
+            return SnakeBuffer.pack(y % 2 == 0 ? offset : columns - 1 - offset, y);
+        }
+
+        /**
+         * Direction that follows the path from the given cell
+         */
+        public Direction nextDirection(int x, int y) {
+            if (byColumns) {
+                if (x % 2 == 0) {
+                    return y < rows - 1 ? Direction.DOWN : Direction.RIGHT;
+                }
+                return y > 0 ? Direction.UP : Direction.RIGHT;
+            }
+            if (y % 2 == 0) {
+                return x < columns - 1 ? Direction.RIGHT : Direction.DOWN;
+            }
+            return x > 0 ? Direction.LEFT : Direction.DOWN;
+        }
+    }
+
+    /**
+     * Common fixture: a headless game with a snake covering the given
+     * fraction of the board
+     */
+    abstract static class GameBenchmark implements Benchmark {
+        final int columns;
+        final int rows;
+        final double fill;
+        SnakeGame game;
+        Serpentine path;
+
+        GameBenchmark(int columns, int rows, double fill) {
+            this.columns = columns;
+            this.rows = rows;
+            this.fill = fill;
+        }
+
+        @Override
+        public String params() {
+            return String.format(Locale.ROOT, "%dx%d fill=%.2f", columns, rows, fill);
+        }
+
+        @Override
+        public void setup() {
+            if (game == null) {
+                game = new SnakeGame(columns, rows, 1, false);
+            }
+            path = fillSnake(game, fill);
+        }
+
+        @Override
+        public void tearDown() {
+            game = null;
+        }
+    }
+
+    /**
+     * One game tick, including steering along the path
+     */
+    static class UpdateBenchmark extends GameBenchmark {
+        UpdateBenchmark(int columns, int rows, double fill) {
+            super(columns, rows, fill);
+        }
+
+        @Override
+        public String name() {
+            return "update";
+        }
+
+        @Override
+        public int run(int operations) {
+            for (int i = 0; i < operations; i++) {
+                if (game.isGameOver()) {
+                    return i;
+                }
+                SnakeHead head = game.getSnakeHead();
+                game.changeDirection(path.nextDirection(head.getX(), head.getY()));
+                game.update();
+            }
+            sink = game.getScore();
+            return operations;
+        }
+    }
+
+    /**
+     * Spawning food on the current board
+     */
+    static class SpawnFoodBenchmark extends GameBenchmark {
+        SpawnFoodBenchmark(int columns, int rows, double fill) {
+            super(columns, rows, fill);
+        }
+
+        @Override
+        public String name() {
+            return "spawnFood";
+        }
+
+        @Override
+        public int run(int operations) {
+            int sum = 0;
+            for (int i = 0; i < operations; i++) {
+                game.spawnFood();
+                sum += game.getFood().getX();
+            }
+            sink = sum;
+            return operations;
+        }
+    }
+
+    /**
+     * Self-collision check with the head placed on random cells
+     */
+    static class CheckCollisionsBenchmark extends GameBenchmark {
+        private final int[] probes = new int[4096];
+
+        CheckCollisionsBenchmark(int columns, int rows, double fill) {
+            super(columns, rows, fill);
+        }
+
+        @Override
+        public String name() {
+            return "checkCollisions";
+        }
+
+        @Override
+        public void setup() {
+            super.setup();
+            Random random = new Random(42);
+            for (int i = 0; i < probes.length; i++) {
+                probes[i] = SnakeBuffer.pack(random.nextInt(columns), random.nextInt(rows));
+            }
+        }
+
+        @Override
+        public int run(int operations) {
+            SnakeHead head = game.getSnakeHead();
+            int headX = head.getX();
+            int headY = head.getY();
+
+            int hits = 0;
+            for (int i = 0; i < operations; i++) {
+                int probe = probes[i & (probes.length - 1)];
+                head.move(SnakeBuffer.unpackX(probe), SnakeBuffer.unpackY(probe));
+                if (game.checkCollisions()) {
+                    hits++;
+                }
+            }
+
+            head.move(headX, headY);
+            sink = hits;
+            return operations;
+        }
+    }
+}
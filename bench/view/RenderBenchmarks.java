@@ -0,0 +1,169 @@
+package view;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import benchmark.Benchmark;
+import model.SnakeBuffer;
+import model.SnakeGame;
+import model.SnakeGameBenchmarks;
+import model.SnakeHead;
+
+/**
+ * Benchmarks for rendering a whole board with a long snake (10k+ segments):
+ * GameRenderer's sprite atlas path against the previous per-segment
+ * antialiased primitives.
+ */
+public class RenderBenchmarks {
+    private static final int COLUMNS = 160;
+    private static final int ROWS = 128;
+    private static final int CELL_SIZE = 8;
+
+    // Keeps results alive so the JIT cannot drop the measured work
+    static volatile int sink;
+
+    /**
+     * Create the rendering benchmarks
+     */
+    public static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (double fill : new double[] {0.5, 0.95}) {
+            benchmarks.add(new AtlasBenchmark(fill));
+            benchmarks.add(new PrimitivesBenchmark(fill));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Common fixture: a game with a long snake and an image to render into
+     */
+    abstract static class RenderBenchmark implements Benchmark {
+        final double fill;
+        SnakeGame game;
+        BufferedImage image;
+
+        RenderBenchmark(double fill) {
+            this.fill = fill;
+        }
+
+        @Override
+        public String params() {
+            return String.format(Locale.ROOT, "%dx%d cell=%d segments=%d",
+                    COLUMNS, ROWS, CELL_SIZE, game == null ? 0 : game.getSnake().length());
+        }
+
+        @Override
+        public void setup() {
+            game = new SnakeGame(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE, CELL_SIZE, false);
+            SnakeGameBenchmarks.fillSnake(game, fill);
+            image = new BufferedImage(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+        }
+
+        @Override
+        public int run(int operations) {
+            Graphics2D g2d = image.createGraphics();
+            try {
+                for (int i = 0; i < operations; i++) {
+                    render(g2d);
+                }
+            } finally {
+                g2d.dispose();
+            }
+            sink = image.getRGB(0, 0);
+            return operations;
+        }
+
+        abstract void render(Graphics2D g2d);
+
+        @Override
+        public void tearDown() {
+            game = null;
+            image = null;
+        }
+    }
+
+    /**
+     * GameRenderer's board rendering with tiles from the sprite atlas
+     */
+    static class AtlasBenchmark extends RenderBenchmark {
+        private GameRenderer renderer;
+
+        AtlasBenchmark(double fill) {
+            super(fill);
+        }
+
+        @Override
+        public String name() {
+            return "render atlas";
+        }
+
+        @Override
+        public void setup() {
+            super.setup();
+            renderer = new GameRenderer();
+            renderer.setSize(image.getWidth(), image.getHeight());
+            game.publishSnapshot();
+            renderer.setSnapshot(game.getSnapshots().acquire());
+        }
+
+        @Override
+        void render(Graphics2D g2d) {
+            renderer.renderBoard(g2d);
+        }
+    }
+
+    /**
+     * The previous rendering: grid lines and an antialiased shape per segment
+     */
+    static class PrimitivesBenchmark extends RenderBenchmark {
+        PrimitivesBenchmark(double fill) {
+            super(fill);
+        }
+
+        @Override
+        public String name() {
+            return "render primitives";
+        }
+
+        @Override
+        void render(Graphics2D g2d) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(Color.BLACK);
+            g2d.fillRect(0, 0, width, height);
+            g2d.setColor(new Color(20, 20, 20));
+            for (int x = 0; x <= width; x += CELL_SIZE) {
+                g2d.drawLine(x, 0, x, height);
+            }
+            for (int y = 0; y <= height; y += CELL_SIZE) {
+                g2d.drawLine(0, y, width, y);
+            }
+
+            g2d.setColor(Color.RED);
+            g2d.fillOval(game.getFood().getX() * CELL_SIZE + 2, game.getFood().getY() * CELL_SIZE + 2,
+                    CELL_SIZE - 4, CELL_SIZE - 4);
+
+            SnakeBuffer snake = game.getSnake();
+            g2d.setColor(new Color(0, 180, 0));
+            for (int i = 1; i < snake.length(); i++) {
+                g2d.fillRoundRect(snake.getX(i) * CELL_SIZE + 1, snake.getY(i) * CELL_SIZE + 1,
+                        CELL_SIZE - 2, CELL_SIZE - 2, 8, 8);
+            }
+
+            SnakeHead head = game.getSnakeHead();
+            int headX = head.getX() * CELL_SIZE;
+            int headY = head.getY() * CELL_SIZE;
+            g2d.setColor(Color.GREEN);
+            g2d.fillRoundRect(headX + 1, headY + 1, CELL_SIZE - 2, CELL_SIZE - 2, 8, 8);
+            g2d.setColor(Color.BLACK);
+            int eyeSize = CELL_SIZE / 5;
+            g2d.fillOval(headX + CELL_SIZE / 4 - eyeSize / 2, headY + CELL_SIZE / 3 - eyeSize / 2, eyeSize, eyeSize);
+            g2d.fillOval(headX + 3 * CELL_SIZE / 4 - eyeSize / 2, headY + CELL_SIZE / 3 - eyeSize / 2, eyeSize, eyeSize);
+        }
+    }
+}
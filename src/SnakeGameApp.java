@@ -1,4 +1,6 @@
 import controller.GameController;
+import metrics.Metrics;
+import metrics.StartupTimer;
 import view.GameFrame;
 
 /**
@@ -6,12 +8,23 @@ import view.GameFrame;
  */
 public class SnakeGameApp {
     public static void main(String[] args) {
-        // Use SwingUtilities.invokeLater to ensure thread safety
+        // Time the startup phases up to the first frame
+        StartupTimer.begin();
+
+        // Use SwingUtilities.invokeLater to ensure thread safety; the window
+        // shows right away, the high scores load in the background
         javax.swing.SwingUtilities.invokeLater(() -> {
             GameFrame gameFrame = new GameFrame("Snake Game");
+            StartupTimer.mark("frame");
             GameController gameController = new GameController(gameFrame);
             gameFrame.setController(gameController);
+            StartupTimer.mark("controller");
             gameFrame.setVisible(true);
+            StartupTimer.mark("visible");
         });
+
+        // Export the hot-path histograms over JMX, meanwhile on the main thread
+        Metrics.init();
+        StartupTimer.mark("metrics");
     }
-}
\ No newline at end of file
+}
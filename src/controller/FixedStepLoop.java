@@ -0,0 +1,157 @@
+package controller;
+
+import java.util.concurrent.locks.LockSupport;
+
+import metrics.Metrics;
+
+/**
+ * Fixed-timestep game loop running on its own high priority thread.
+ * Ticks are scheduled at absolute times, so a late tick does not push back
+ * the ones after it. When the loop falls behind it catches up with
+ * back-to-back ticks, at most MAX_CATCH_UP_TICKS at a time, and drops the
+ * rest instead of fast-forwarding the game.
+ */
+public class FixedStepLoop {
+    private static final int MAX_CATCH_UP_TICKS = 3;
+    private static final long SPIN_NANOS = 1_000_000L; // yield instead of park for the last millisecond
+
+    private final Runnable tick;
+    private final TickJitterStats jitterStats = new TickJitterStats();
+    private volatile long periodNanos;
+
+    // Thread currently running the loop, null when stopped
+    private volatile Thread thread;
+
+    // How late the running tick started, only used on the loop thread
+    private long tickLatenessNanos;
+
+    /**
+     * Constructor
+     * @param tick the work to run every tick, called on the loop thread
+     * @param periodMillis time between ticks
+     */
+    public FixedStepLoop(Runnable tick, int periodMillis) {
+        this.tick = tick;
+        setPeriodMillis(periodMillis);
+    }
+
+    /**
+     * Start ticking; the first tick runs one period from now
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread loopThread = new Thread(this::run, "Game Loop");
+        loopThread.setDaemon(true);
+        loopThread.setPriority(Thread.MAX_PRIORITY);
+        thread = loopThread;
+        loopThread.start();
+    }
+
+    /**
+     * Stop ticking. A tick already in progress still completes.
+     */
+    public synchronized void stop() {
+        Thread loopThread = thread;
+        thread = null;
+        if (loopThread != null) {
+            LockSupport.unpark(loopThread);
+        }
+    }
+
+    /**
+     * Stop ticking if the loop is still run by the given thread, e.g. from
+     * a tick that ended the game, so a loop restarted since keeps running
+     */
+    public synchronized void stopIfCurrent(Thread loopThread) {
+        if (thread == loopThread) {
+            stop();
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Check if the calling thread runs the loop, i.e. the loop was neither
+     * stopped nor restarted since the calling tick was started
+     */
+    public boolean isCurrentThread() {
+        return thread == Thread.currentThread();
+    }
+
+    /**
+     * Change the time between ticks, effective from the next scheduled tick
+     */
+    public void setPeriodMillis(int periodMillis) {
+        periodNanos = periodMillis * 1_000_000L;
+    }
+
+    /**
+     * How late the running tick started; only valid on the loop thread
+     * while a tick runs
+     */
+    long getTickLatenessNanos() {
+        return tickLatenessNanos;
+    }
+
+    public int getPeriodMillis() {
+        return (int) (periodNanos / 1_000_000L);
+    }
+
+    public TickJitterStats getJitterStats() {
+        return jitterStats;
+    }
+
+    /**
+     * Loop body
+     */
+    private void run() {
+        Thread self = Thread.currentThread();
+        long nextTick = System.nanoTime() + periodNanos;
+
+        while (thread == self) {
+            long now = waitUntil(nextTick, self);
+
+            // Run every tick that is due, catching up if behind
+            int ticks = 0;
+            while (thread == self && now >= nextTick && ticks < MAX_CATCH_UP_TICKS) {
+                tickLatenessNanos = now - nextTick;
+                jitterStats.record(tickLatenessNanos);
+                Metrics.TICK_LATENESS.record(tickLatenessNanos);
+                tick.run();
+                nextTick += periodNanos;
+                ticks++;
+                now = System.nanoTime();
+            }
+
+            // Still behind after catching up: skip the missed ticks
+            if (thread == self && now >= nextTick) {
+                long period = periodNanos;
+                long missed = (now - nextTick) / period + 1;
+                jitterStats.recordDropped(missed);
+                nextTick += missed * period;
+            }
+        }
+    }
+
+    /**
+     * Wait until the deadline or until the loop is stopped
+     * @return the current time
+     */
+    private long waitUntil(long deadline, Thread self) {
+        long now = System.nanoTime();
+        while (now < deadline && thread == self) {
+            long remaining = deadline - now;
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+            now = System.nanoTime();
+        }
+        return now;
+    }
+}
@@ -1,14 +1,21 @@
 package controller;
 
 import javax.swing.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import metrics.GameTickEvent;
+import metrics.Metrics;
+import metrics.StartupTimer;
+import model.Autopilot;
+import model.GameEngine;
+import model.HighScore;
 import model.SnakeGame;
 import model.SnakeGame.Direction;
 import view.GameFrame;
+import view.HighScorePanel;
 import view.PlayerNameDialog;
 
 /**
@@ -18,20 +25,38 @@ import view.PlayerNameDialog;
 public class GameController {
     // Model
     private SnakeGame game;
+    private GameEngine engine;
+
+    // Set while a view update is queued on the EDT
+    private final AtomicBoolean viewUpdatePending = new AtomicBoolean();
 
     // View
     private GameFrame gameFrame;
 
     // Game loop
-    private Timer gameTimer;
+    private FixedStepLoop gameLoop;
 
     // Keyboard controller
     private KeyboardController keyboardController;
 
+    // Replay viewer, sharing the game panel
+    private ReplayController replayController;
+
+    // Direction key presses from the EDT, consumed one turn per tick
+    private final InputQueue inputQueue = new InputQueue(INPUT_QUEUE_CAPACITY);
+    private final InputLatencyStats inputLatencyStats = new InputLatencyStats();
+
+    // Planner steering the snake while autopilot is on (used on the game
+    // loop thread); games it played in are not offered a high score
+    private final Autopilot autopilot = new Autopilot();
+    private volatile boolean autopilotEnabled;
+    private boolean autopilotUsed;
+
     // Constants
     private static final int CELL_SIZE = 20;
     private static final int BOARD_WIDTH = 600;
     private static final int BOARD_HEIGHT = 500;
+    private static final int INPUT_QUEUE_CAPACITY = 16;
 
     /**
      * Constructor
@@ -39,22 +64,35 @@ public class GameController {
     public GameController(GameFrame gameFrame) {
         this.gameFrame = gameFrame;
 
-        // Initialize model
+        // Initialize model; the high scores load in the background
         game = new SnakeGame(BOARD_WIDTH, BOARD_HEIGHT, CELL_SIZE);
+        game.setMetricsEnabled(true);
+        game.getHighScoresLoaded().thenRun(() -> StartupTimer.mark("high scores"));
+        engine = new GameEngine(game);
 
         // Initialize keyboard controller
         keyboardController = new KeyboardController();
+        replayController = new ReplayController(gameFrame, CELL_SIZE);
 
-        // Initialize game timer (using javax.swing.Timer)
-        gameTimer = new Timer(game.getGameSpeed(), new GameLoop());
+        // Initialize game loop (runs on its own thread)
+        gameLoop = new FixedStepLoop(this::tick, game.getGameSpeed());
     }
 
     /**
      * Start a new game
      */
     public void startNewGame() {
+        // Stop a loop left over from the previous game
+        gameLoop.stop();
+        replayController.stop();
+
         // Reset game state
-        game.resetGame();
+        synchronized (game) {
+            game.resetGame();
+            autopilot.reset(game);
+            autopilotUsed = false;
+            game.publishSnapshot();
+        }
 
         // Update view
         updateGameView();
@@ -62,35 +100,62 @@ public class GameController {
         // Show game panel
         gameFrame.showGamePanel();
 
-        // Start game timer
-        gameTimer.setDelay(game.getGameSpeed());
-        gameTimer.start();
+        // Start game loop, ignoring keys pressed during the previous game
+        inputQueue.discardPending();
+        inputLatencyStats.reset();
+        gameLoop.setPeriodMillis(game.getGameSpeed());
+        gameLoop.getJitterStats().reset();
+        gameLoop.start();
     }
 
     /**
      * Show high scores
      */
     public void showHighScores() {
-        // Update high scores panel
-        gameFrame.getHighScorePanel().updateHighScores(game.getHighScores());
+        // Update high scores panel, once they are loaded
+        HighScorePanel highScorePanel = gameFrame.getHighScorePanel();
+        if (game.getHighScoresLoaded().isDone()) {
+            highScorePanel.updateHighScores(readHighScores());
+        } else {
+            highScorePanel.showLoading();
+            game.getHighScoresLoaded().thenRun(() -> SwingUtilities.invokeLater(
+                    () -> highScorePanel.updateHighScores(readHighScores())));
+        }
 
         // Show high scores panel
         gameFrame.showHighScorePanel();
     }
 
+    /**
+     * Copy the best scores under the game lock: the game loop thread adds
+     * other games' scores to the leaderboard when it checks for a high score
+     */
+    private List<HighScore> readHighScores() {
+        synchronized (game) {
+            return game.getHighScores();
+        }
+    }
+
     /**
      * Show menu
      */
     public void showMenu() {
-        // Stop game timer if running
-        if (gameTimer.isRunning()) {
-            gameTimer.stop();
-        }
+        // Stop game loop if running
+        gameLoop.stop();
+        replayController.stop();
 
         // Show menu panel
         gameFrame.showMenuPanel();
     }
 
+    /**
+     * Pick a saved replay and watch it
+     */
+    public void watchReplay() {
+        gameLoop.stop();
+        replayController.open();
+    }
+
     /**
      * Pause/resume the game
      */
@@ -99,12 +164,16 @@ public class GameController {
             return;
         }
 
-        if (game.isPaused()) {
-            game.setPaused(false);
-            gameTimer.start();
-        } else {
-            game.setPaused(true);
-            gameTimer.stop();
+        synchronized (game) {
+            if (game.isPaused()) {
+                game.setPaused(false);
+                inputQueue.discardPending();
+                gameLoop.start();
+            } else {
+                game.setPaused(true);
+                gameLoop.stop();
+            }
+            game.publishSnapshot();
         }
 
         // Update view
@@ -112,55 +181,166 @@ public class GameController {
     }
 
     /**
-     * Update game view with current game state
+     * Turn the autopilot on or off; pressing a direction key turns it off
+     */
+    public void toggleAutopilot() {
+        autopilotEnabled = !autopilotEnabled;
+    }
+
+    public boolean isAutopilotEnabled() {
+        return autopilotEnabled;
+    }
+
+    /**
+     * Update game view with the latest published snapshot (on the EDT).
+     * Reading the snapshot needs no lock on the game.
      */
     private void updateGameView() {
-        gameFrame.getGamePanel().updateGameState(
-                game.getSnakeHead(),
-                game.getSnakeBody(),
-                game.getFood(),
-                game.isGameOver(),
-                game.isPaused(),
-                game.getScore(),
-                game.getBoardWidth(),
-                game.getBoardHeight(),
-                game.getCellSize()
-        );
+        gameFrame.getGamePanel().updateGameState(game.getSnapshots().acquire());
     }
 
     /**
-     * Game loop implementation
+     * Queue a view update on the EDT, unless one is already queued
      */
-    private class GameLoop implements ActionListener {
-        @Override
-        public void actionPerformed(ActionEvent e) {
+    private void requestViewUpdate() {
+        if (viewUpdatePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                viewUpdatePending.set(false);
+                updateGameView();
+            });
+        }
+    }
+
+    /**
+     * One game loop tick, called on the game loop thread
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        boolean gameOver;
+        boolean highScore;
+        int score;
+
+        // No event, and no allocation, unless a recording is on
+        GameTickEvent event = GameTickEvent.enabled() ? new GameTickEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        synchronized (game) {
+            // A tick that waited for the lock while the loop was stopped,
+            // e.g. by startNewGame(), must not step the game
+            if (!gameLoop.isCurrentThread()) {
+                return;
+            }
+
             // Update game state
-            game.update();
+            if (autopilotEnabled) {
+                autopilotUsed = true;
+                Direction planned = autopilot.nextDirection(game);
+                if (planned != null) {
+                    // Null when every move is deadly: go straight and die
+                    game.changeDirection(planned);
+                }
+            } else {
+                applyInput(now);
+            }
+            long start = System.nanoTime();
+            GameEngine.StepResult result = engine.step();
+            Metrics.TICK.recordSince(start);
+
+            gameOver = game.isGameOver();
+            highScore = gameOver && !autopilotUsed && game.isHighScore();
+            score = game.getScore();
 
-            // Update timer delay if game speed changed
-            int currentDelay = gameTimer.getDelay();
-            if (currentDelay != game.getGameSpeed()) {
-                gameTimer.setDelay(game.getGameSpeed());
+            // Update tick period if game speed changed
+            if (gameLoop.getPeriodMillis() != game.getGameSpeed()) {
+                gameLoop.setPeriodMillis(game.getGameSpeed());
+            }
+
+            game.publishSnapshot();
+
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.tick = game.getTicks();
+                    event.lateness = gameLoop.getTickLatenessNanos();
+                    event.result = result.name();
+                    event.score = score;
+                    event.snakeLength = game.getSnake().length();
+                    event.commit();
+                }
             }
+        }
 
-            // Check if game is over
-            if (game.isGameOver()) {
-                gameTimer.stop();
+        // Check if game is over; by now the loop may have been restarted
+        // for a new game, which must keep running
+        if (gameOver) {
+            gameLoop.stopIfCurrent(Thread.currentThread());
 
-                // Check if it's a high score and prompt for name
-                if (game.isHighScore()) {
-                    SwingUtilities.invokeLater(() -> {
-                        String playerName = PlayerNameDialog.showDialog(gameFrame, game.getScore());
+            // Check if it's a high score and prompt for name
+            if (highScore) {
+                SwingUtilities.invokeLater(() -> {
+                    String playerName = PlayerNameDialog.showDialog(gameFrame, score);
+                    synchronized (game) {
                         game.addHighScore(playerName);
-                    });
-                }
+                    }
+                });
             }
+        }
 
-            // Update view
-            updateGameView();
+        // Update view
+        requestViewUpdate();
+    }
+
+    /**
+     * Turn the snake with the oldest queued key press that is a valid turn,
+     * skipping the ones that are not (on the game loop thread)
+     */
+    private void applyInput(long now) {
+        while (!inputQueue.isEmpty()) {
+            Direction direction = inputQueue.peekDirection();
+            long pressed = inputQueue.peekTimestamp();
+            inputQueue.remove();
+            if (game.changeDirection(direction)) {
+                game.markInput(pressed);
+                inputLatencyStats.record(now - pressed);
+                return;
+            }
+            inputLatencyStats.recordIgnored();
         }
     }
 
+    /**
+     * Queue a direction key press for the game loop (on the EDT)
+     */
+    private void queueDirection(Direction direction) {
+        // Keys pressed while paused or after game over are not kept
+        if (gameLoop.isRunning()) {
+            autopilotEnabled = false;
+            inputQueue.offer(direction, System.nanoTime());
+        }
+    }
+
+    /**
+     * Get the scheduling jitter statistics of the game loop
+     */
+    public TickJitterStats getTickJitterStats() {
+        return gameLoop.getJitterStats();
+    }
+
+    /**
+     * Get the input latency statistics of the game loop
+     */
+    public InputLatencyStats getInputLatencyStats() {
+        return inputLatencyStats;
+    }
+
+    /**
+     * Get the number of key presses dropped because the input queue was full
+     */
+    public long getDroppedInputCount() {
+        return inputQueue.getDroppedCount();
+    }
+
     /**
      * Get keyboard controller
      */
@@ -176,29 +356,40 @@ public class GameController {
         public void keyPressed(KeyEvent e) {
             int key = e.getKeyCode();
 
+            // Replay controls take precedence while a replay is watched
+            if (replayController.isActive()) {
+                if (!replayController.keyPressed(e) && (key == KeyEvent.VK_M || key == KeyEvent.VK_ESCAPE)) {
+                    showMenu();
+                }
+                return;
+            }
+
             // Direction controls
             switch (key) {
                 case KeyEvent.VK_UP:
                 case KeyEvent.VK_W:
-                    game.changeDirection(Direction.UP);
+                    queueDirection(Direction.UP);
                     break;
                 case KeyEvent.VK_DOWN:
                 case KeyEvent.VK_S:
-                    game.changeDirection(Direction.DOWN);
+                    queueDirection(Direction.DOWN);
                     break;
                 case KeyEvent.VK_LEFT:
                 case KeyEvent.VK_A:
-                    game.changeDirection(Direction.LEFT);
+                    queueDirection(Direction.LEFT);
                     break;
                 case KeyEvent.VK_RIGHT:
                 case KeyEvent.VK_D:
-                    game.changeDirection(Direction.RIGHT);
+                    queueDirection(Direction.RIGHT);
                     break;
 
                 // Game controls
                 case KeyEvent.VK_P:
                     togglePause();
                     break;
+                case KeyEvent.VK_T:
+                    toggleAutopilot();
+                    break;
                 case KeyEvent.VK_R:
                     if (game.isGameOver()) {
                         startNewGame();
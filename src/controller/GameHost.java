@@ -0,0 +1,499 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import model.GameEngine;
+import model.SnakeGame;
+
+/**
+ * Runs many independent games in one JVM (bots, hosted matches, load
+ * tests), each ticking at its own game speed, without Swing.
+ *
+ * Games are spread over shards. Each shard keeps its games in a heap
+ * ordered by their next tick time. A timer thread submits a shard to a
+ * work-stealing ForkJoinPool when its earliest game is due. The shard
+ * then ticks all its due games, splitting large batches into subtasks
+ * that idle workers can steal. Like the FixedStepLoop, ticks are scheduled
+ * at absolute times. A game that falls more than MAX_CATCH_UP_TICKS
+ * behind skips the missed ticks instead of fast-forwarding.
+ *
+ * Admission control rejects new games when the host is full, or while a
+ * shard runs its ticks later than the allowed lag on average. Every shard
+ * records the lateness of its ticks.
+ */
+public class GameHost implements AutoCloseable {
+    private static final int MAX_CATCH_UP_TICKS = 3;
+    private static final int SHARDS_PER_WORKER = 4;
+    private static final int BATCH_THRESHOLD = 64; // games ticked by one task without splitting
+    private static final long MAX_TIMER_PARK_NANOS = 100_000_000L;
+    private static final double LAG_SMOOTHING = 0.2; // weight of the latest run in the lag average
+    private static final long NO_TICK_NANOS = Long.MAX_VALUE / 4; // how far ahead an empty shard's due time is
+
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+    private final Thread timer;
+    private final int maxGames;
+    private final long maxLagNanos;
+    private volatile double timeScale = 1;
+    private volatile boolean closed;
+
+    private final AtomicInteger gameCount = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    /**
+     * Callbacks of a hosted game, called on a pool thread with the game
+     * locked
+     */
+    public interface Session {
+        /**
+         * Called before every tick, e.g. to steer the snake
+         */
+        default void beforeTick(SnakeGame game) {
+        }
+
+        /**
+         * Called after every tick
+         * @return false to stop hosting the game; by default once it is over
+         */
+        default boolean afterTick(SnakeGame game, GameEngine.StepResult result) {
+            return !game.isGameOver();
+        }
+    }
+
+    /**
+     * A game on the host
+     */
+    public static class Handle {
+        private final SnakeGame game;
+        private final GameEngine engine;
+        private final Session session;
+        private final Shard shard;
+        private final AtomicBoolean hosted = new AtomicBoolean(true);
+
+        // Next scheduled tick, only used by the shard
+        private long nextTick;
+
+        Handle(SnakeGame game, Session session, Shard shard, long nextTick) {
+            this.game = game;
+            this.engine = new GameEngine(game);
+            this.session = session;
+            this.shard = shard;
+            this.nextTick = nextTick;
+        }
+
+        public SnakeGame getGame() {
+            return game;
+        }
+
+        /**
+         * Check if the game is still ticked by the host
+         */
+        public boolean isHosted() {
+            return hosted.get();
+        }
+
+        /**
+         * Stop ticking the game; a tick already in progress still completes
+         */
+        public void remove() {
+            shard.host.release(this);
+        }
+
+        /**
+         * Index of the shard the game runs on
+         */
+        public int getShard() {
+            return shard.index;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param parallelism number of worker threads
+     * @param maxGames largest number of games hosted at once
+     * @param maxLagMillis new games are rejected while a shard's ticks run
+     *                     later than this on average
+     */
+    public GameHost(int parallelism, int maxGames, long maxLagMillis) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxGames = maxGames;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.shards = new Shard[parallelism * SHARDS_PER_WORKER];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(this, i);
+        }
+
+        timer = new Thread(this::runTimer, "Game Host Timer");
+        timer.setDaemon(true);
+        timer.setPriority(Thread.MAX_PRIORITY);
+        timer.start();
+    }
+
+    /**
+     * Host a game; its first tick runs one game speed period from now.
+     * Replay recording is turned off for the game, as hosted games can
+     * run for a very long time and their replays would grow without bound.
+     * @throws RejectedExecutionException if the host is full, overloaded
+     *         or closed
+     */
+    public Handle add(SnakeGame game, Session session) {
+        if (closed) {
+            throw new RejectedExecutionException("Game host is closed");
+        }
+        if (isOverloaded()) {
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException("Game host is overloaded");
+        }
+        int count;
+        do {
+            count = gameCount.get();
+            if (count >= maxGames) {
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("Game host is full (" + maxGames + " games)");
+            }
+        } while (!gameCount.compareAndSet(count, count + 1));
+
+        synchronized (game) {
+            game.setReplayRecording(false);
+        }
+        Shard shard = shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)];
+        Handle handle = new Handle(game, session, shard, System.nanoTime() + periodNanos(game));
+        shard.submit(handle);
+        LockSupport.unpark(timer);
+        return handle;
+    }
+
+    /**
+     * Check if a shard currently runs its ticks later than the allowed lag
+     */
+    public boolean isOverloaded() {
+        for (Shard shard : shards) {
+            if (shard.lagNanos > maxLagNanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run the games faster (or slower) than real time, e.g. for bots and
+     * load tests: tick periods are the game speed divided by the scale
+     */
+    public void setTimeScale(double timeScale) {
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Stop ticking all games and shut the workers down
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(timer);
+        pool.shutdown();
+        try {
+            timer.join();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long periodNanos(SnakeGame game) {
+        return Math.max(1, (long) (game.getGameSpeed() * 1_000_000L / timeScale));
+    }
+
+    private void release(Handle handle) {
+        if (handle.hosted.compareAndSet(true, false)) {
+            gameCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Timer thread: submit every shard whose earliest game is due, then
+     * sleep until the next one is
+     */
+    private void runTimer() {
+        while (!closed) {
+            long now = System.nanoTime();
+            long wake = now + MAX_TIMER_PARK_NANOS;
+            for (Shard shard : shards) {
+                if (!shard.anyDue) {
+                    continue;
+                }
+                long due = shard.nextDue.get();
+                if (due - now <= 0 && shard.scheduled.compareAndSet(false, true)) {
+                    try {
+                        pool.execute(shard);
+                    } catch (RejectedExecutionException e) {
+                        return;
+                    }
+                } else if (!shard.scheduled.get() && due - wake < 0) {
+                    wake = due;
+                }
+            }
+            // Shards and new games unpark the timer when they change a due time
+            LockSupport.parkNanos(this, wake - now);
+        }
+    }
+
+    /**
+     * A group of games ticked together by one task at a time
+     */
+    static class Shard implements Runnable {
+        private final GameHost host;
+        private final int index;
+        private final TickJitterStats stats = new TickJitterStats();
+
+        // Games added since the last run
+        private final Queue<Handle> inbox = new ConcurrentLinkedQueue<>();
+
+        // Games by next tick, only used by the running task
+        private final PriorityQueue<Handle> games = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.nextTick - b.nextTick, 0));
+        private final List<Handle> due = new ArrayList<>();
+
+        // Time of the earliest tick, only valid while the shard has games
+        // (anyDue), and whether the shard is queued or running. Times from
+        // System.nanoTime() may be negative, so they are only compared by
+        // their difference; without games the time is set far enough ahead
+        // that a game added later is the earliest, without overflowing.
+        private final AtomicLong nextDue = new AtomicLong(System.nanoTime() + NO_TICK_NANOS);
+        private volatile boolean anyDue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Smoothed mean lateness of the recent runs
+        private volatile double lagNanos;
+        private volatile int size;
+
+        Shard(GameHost host, int index) {
+            this.host = host;
+            this.index = index;
+        }
+
+        void submit(Handle handle) {
+            inbox.add(handle);
+            nextDue.accumulateAndGet(handle.nextTick, (a, b) -> b - a < 0 ? b : a);
+            anyDue = true;
+        }
+
+        /**
+         * Tick every game that is due
+         */
+        @Override
+        public void run() {
+            try {
+                Handle added;
+                while ((added = inbox.poll()) != null) {
+                    games.add(added);
+                }
+
+                long now = System.nanoTime();
+                due.clear();
+                while (!games.isEmpty() && games.peek().nextTick - now <= 0) {
+                    Handle handle = games.poll();
+                    if (handle.isHosted()) {
+                        due.add(handle);
+                    }
+                }
+
+                if (!due.isEmpty()) {
+                    TickTask task = new TickTask(this, due, 0, due.size(), now);
+                    task.invoke();
+                    for (Handle handle : due) {
+                        if (handle.isHosted()) {
+                            games.add(handle);
+                        }
+                    }
+                    lagNanos += LAG_SMOOTHING * (task.sumNanos / (double) due.size() - lagNanos);
+                }
+                size = games.size();
+                if (size == 0) {
+                    // An idle shard is not late, however its last games ran
+                    lagNanos = 0;
+                }
+            } finally {
+                if (games.isEmpty()) {
+                    nextDue.set(System.nanoTime() + NO_TICK_NANOS);
+                    anyDue = false;
+                } else {
+                    nextDue.set(games.peek().nextTick);
+                    anyDue = true;
+                }
+                scheduled.set(false);
+                if (!inbox.isEmpty()) {
+                    nextDue.set(System.nanoTime());
+                    anyDue = true;
+                }
+                LockSupport.unpark(host.timer);
+            }
+        }
+
+        /**
+         * Tick one game and schedule its next tick
+         * @return the lateness of the tick
+         */
+        long tick(Handle handle, long now, long[] dropped) {
+            long lateness = now - handle.nextTick;
+            boolean keep;
+            synchronized (handle.game) {
+                handle.session.beforeTick(handle.game);
+                GameEngine.StepResult result = handle.engine.step();
+                keep = handle.session.afterTick(handle.game, result);
+            }
+            if (!keep) {
+                host.release(handle);
+                return lateness;
+            }
+
+            // Skip the missed ticks if too far behind to catch up
+            long period = host.periodNanos(handle.game);
+            handle.nextTick += period;
+            long behind = now - handle.nextTick;
+            if (behind >= period * MAX_CATCH_UP_TICKS) {
+                long missed = behind / period;
+                handle.nextTick += missed * period;
+                dropped[0] += missed;
+            }
+            return lateness;
+        }
+    }
+
+    /**
+     * Ticks a range of due games, splitting it so other workers can steal
+     * half of it
+     */
+    private static class TickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Shard shard;
+        private final List<Handle> games;
+        private final int from;
+        private final int to;
+        private final long now;
+
+        // Lateness of the range's ticks, for the shard's lag average
+        long sumNanos;
+
+        TickTask(Shard shard, List<Handle> games, int from, int to, long now) {
+            this.shard = shard;
+            this.games = games;
+            this.from = from;
+            this.to = to;
+            this.now = now;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                TickTask left = new TickTask(shard, games, from, middle, now);
+                TickTask right = new TickTask(shard, games, middle, to, now);
+                invokeAll(left, right);
+                sumNanos = left.sumNanos + right.sumNanos;
+                return;
+            }
+
+            long sum = 0;
+            double sumSquares = 0;
+            long max = 0;
+            long[] dropped = {0};
+            for (int i = from; i < to; i++) {
+                long lateness = shard.tick(games.get(i), now, dropped);
+                sum += lateness;
+                sumSquares += (double) lateness * lateness;
+                max = Math.max(max, lateness);
+            }
+            shard.stats.recordAll(to - from, sum, sumSquares, max);
+            if (dropped[0] > 0) {
+                shard.stats.recordDropped(dropped[0]);
+            }
+            sumNanos = sum;
+        }
+    }
+
+    // Metrics
+
+    public int getGameCount() {
+        return gameCount.get();
+    }
+
+    /**
+     * Number of games rejected by admission control
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Tick lateness statistics of a shard
+     */
+    public TickJitterStats getShardStats(int shard) {
+        return shards[shard].stats;
+    }
+
+    /**
+     * Number of games on a shard as of its last run
+     */
+    public int getShardGameCount(int shard) {
+        return shards[shard].size;
+    }
+
+    /**
+     * Smoothed mean lateness of a shard's recent ticks in milliseconds, as
+     * used for admission control
+     */
+    public double getShardLagMillis(int shard) {
+        return shards[shard].lagNanos / 1e6;
+    }
+
+    /**
+     * Number of ticks run on all shards
+     */
+    public long getTickCount() {
+        long ticks = 0;
+        for (Shard shard : shards) {
+            ticks += shard.stats.getTicks();
+        }
+        return ticks;
+    }
+
+    /**
+     * Number of ticks skipped on all shards because games fell behind
+     */
+    public long getDroppedTickCount() {
+        long dropped = 0;
+        for (Shard shard : shards) {
+            dropped += shard.stats.getDroppedTicks();
+        }
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games=%d shards=%d workers=%d ticks=%d dropped=%d rejected=%d",
+                getGameCount(), shards.length, pool.getParallelism(), getTickCount(), getDroppedTickCount(),
+                getRejectedCount());
+    }
+}
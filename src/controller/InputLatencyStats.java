@@ -0,0 +1,67 @@
+package controller;
+
+/**
+ * Input latency statistics of the game loop.
+ * Records the time from a direction key press until the tick that turned
+ * the snake, and how many presses were ignored because they were not a
+ * valid turn when their tick came.
+ */
+public class InputLatencyStats {
+    private long turns;
+    private long ignored;
+    private long sumNanos;
+    private long maxNanos;
+
+    /**
+     * Record a press that turned the snake
+     */
+    public synchronized void record(long latencyNanos) {
+        turns++;
+        sumNanos += latencyNanos;
+        if (latencyNanos > maxNanos) {
+            maxNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * Record a press skipped as a reversal or no change of direction
+     */
+    public synchronized void recordIgnored() {
+        ignored++;
+    }
+
+    public synchronized void reset() {
+        turns = 0;
+        ignored = 0;
+        sumNanos = 0;
+        maxNanos = 0;
+    }
+
+    public synchronized long getTurns() {
+        return turns;
+    }
+
+    public synchronized long getIgnored() {
+        return ignored;
+    }
+
+    /**
+     * Mean latency in milliseconds
+     */
+    public synchronized double getMeanMillis() {
+        return turns == 0 ? 0 : sumNanos / (double) turns / 1e6;
+    }
+
+    /**
+     * Largest latency in milliseconds
+     */
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("turns=%d ignored=%d input latency mean=%.3fms max=%.3fms",
+                turns, ignored, getMeanMillis(), getMaxMillis());
+    }
+}
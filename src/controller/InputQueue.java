@@ -0,0 +1,114 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Bounded, lock-free single-producer/single-consumer ring buffer of
+ * direction key presses, each with the time it was pressed.
+ * The EDT is the producer and the game loop the consumer, so quick key
+ * presses within one tick are kept in order instead of overwriting each
+ * other. When the buffer is full, further presses are dropped.
+ */
+public class InputQueue {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final byte[] directions;
+    private final long[] timestamps;
+    private final int mask;
+
+    // Next position to write, advanced by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    // Next position to read, advanced by the consumer only
+    private final AtomicLong head = new AtomicLong();
+
+    // Events before this position are skipped by the consumer
+    private volatile long discardBefore;
+
+    // Presses dropped because the buffer was full, written by the producer only
+    private volatile long dropped;
+
+    /**
+     * Constructor
+     * @param capacity maximum number of queued presses, rounded up to a
+     *                 power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        directions = new byte[size];
+        timestamps = new long[size];
+        mask = size - 1;
+    }
+
+    // Producer side
+
+    /**
+     * Queue a key press
+     * @param timestampNanos when the key was pressed, from System.nanoTime()
+     * @return false if the buffer was full and the press was dropped
+     */
+    public boolean offer(Direction direction, long timestampNanos) {
+        long position = tail.get();
+        if (position - head.get() == directions.length) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) position & mask;
+        directions[slot] = (byte) direction.ordinal();
+        timestamps[slot] = timestampNanos;
+        // Publishes the slot to the consumer
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Make the consumer skip every press queued so far, e.g. when a new
+     * game starts
+     */
+    public void discardPending() {
+        discardBefore = tail.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    // Consumer side
+
+    /**
+     * Check if there is no press to consume
+     */
+    public boolean isEmpty() {
+        long position = head.get();
+        long discard = discardBefore;
+        if (position < discard) {
+            position = discard;
+            head.lazySet(position);
+        }
+        return position == tail.get();
+    }
+
+    /**
+     * Direction of the oldest press; only valid if isEmpty() returned false
+     */
+    public Direction peekDirection() {
+        return DIRECTIONS[directions[(int) head.get() & mask]];
+    }
+
+    /**
+     * Time of the oldest press; only valid if isEmpty() returned false
+     */
+    public long peekTimestamp() {
+        return timestamps[(int) head.get() & mask];
+    }
+
+    /**
+     * Remove the oldest press; only valid if isEmpty() returned false
+     */
+    public void remove() {
+        // Hands the slot back to the producer
+        head.lazySet(head.get() + 1);
+    }
+}
@@ -0,0 +1,185 @@
+package controller;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+
+import model.GameEngine;
+import model.Replay;
+import model.ReplayPlayer;
+import view.GameFrame;
+import view.GamePanel;
+
+/**
+ * Controller for watching saved replays in the GamePanel.
+ * Plays the replay at the speed it was recorded at, on the EDT, and seeks
+ * when the scrub bar or the arrow keys are used. Seeking restores the
+ * nearest keyframe, so scrubbing stays smooth even in long replays.
+ */
+public class ReplayController {
+    private static final int SEEK_STEP = 10; // ticks per arrow key press
+    private static final int FAST_SEEK_STEP = 500; // ticks per arrow key press with shift
+
+    private final GameFrame gameFrame;
+    private final int cellSize;
+    private final Timer timer;
+
+    // Replay being watched, null when none is
+    private ReplayPlayer player;
+
+    /**
+     * Constructor
+     */
+    public ReplayController(GameFrame gameFrame, int cellSize) {
+        this.gameFrame = gameFrame;
+        this.cellSize = cellSize;
+        this.timer = new Timer(0, e -> tick());
+    }
+
+    /**
+     * Let the player pick a replay file and start watching it
+     * @return false if no replay was opened
+     */
+    public boolean open() {
+        JFileChooser chooser = new JFileChooser(new File(System.getProperty("snake.replays", "replays")));
+        chooser.setFileFilter(new FileNameExtensionFilter("Snake replays", "replay"));
+        if (chooser.showOpenDialog(gameFrame) != JFileChooser.APPROVE_OPTION) {
+            return false;
+        }
+
+        try {
+            start(Replay.read(chooser.getSelectedFile().toPath()));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading replay: " + e.getMessage());
+            JOptionPane.showMessageDialog(gameFrame, "Could not open the replay.", "Replay",
+                    JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
+    /**
+     * Start watching a replay from its first tick
+     */
+    public void start(Replay replay) {
+        stop();
+        player = new ReplayPlayer(replay, cellSize);
+        gameFrame.getGamePanel().setScrubListener(this::seek);
+        gameFrame.getGamePanel().resetSnapshot();
+        updateView();
+        gameFrame.showGamePanel();
+        play();
+    }
+
+    /**
+     * Stop watching the replay
+     */
+    public void stop() {
+        timer.stop();
+        if (player != null) {
+            player = null;
+            gameFrame.getGamePanel().setReplayPosition(0, 0, false);
+            gameFrame.getGamePanel().resetSnapshot();
+        }
+    }
+
+    /**
+     * Check if a replay is being watched
+     */
+    public boolean isActive() {
+        return player != null;
+    }
+
+    private void play() {
+        if (player.isFinished()) {
+            player.rewind();
+        }
+        timer.setInitialDelay(player.getGame().getGameSpeed());
+        timer.restart();
+        updateView();
+    }
+
+    private void togglePlay() {
+        if (timer.isRunning()) {
+            timer.stop();
+            updateView();
+        } else {
+            play();
+        }
+    }
+
+    /**
+     * Play one tick, at the game speed of the recorded game
+     */
+    private void tick() {
+        if (player == null) {
+            return;
+        }
+        if (player.step() == GameEngine.StepResult.IDLE || player.isFinished()) {
+            timer.stop();
+        } else {
+            timer.setDelay(player.getGame().getGameSpeed());
+        }
+        updateView();
+    }
+
+    /**
+     * Show the given tick, keeping the replay playing if it was
+     */
+    private void seek(long tick) {
+        if (player == null) {
+            return;
+        }
+        player.seek(tick);
+        if (player.isFinished()) {
+            timer.stop();
+        }
+        updateView();
+    }
+
+    /**
+     * Publish the replay's game and show it with its position
+     */
+    private void updateView() {
+        GamePanel panel = gameFrame.getGamePanel();
+        player.getGame().publishSnapshot();
+        panel.updateGameState(player.getGame().getSnapshots().acquire());
+        panel.setReplayPosition(player.getTick(), player.getReplay().getTicks(), timer.isRunning());
+    }
+
+    /**
+     * Handle a key press while a replay is watched
+     * @return false if the key is not a replay control
+     */
+    boolean keyPressed(KeyEvent e) {
+        int step = e.isShiftDown() ? FAST_SEEK_STEP : SEEK_STEP;
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_SPACE:
+            case KeyEvent.VK_P:
+                togglePlay();
+                return true;
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_A:
+                seek(player.getTick() - step);
+                return true;
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_D:
+                seek(player.getTick() + step);
+                return true;
+            case KeyEvent.VK_HOME:
+                seek(0);
+                return true;
+            case KeyEvent.VK_END:
+                seek(player.getReplay().getTicks());
+                return true;
+            case KeyEvent.VK_R:
+                player.rewind();
+                play();
+                return true;
+            default:
+                return false;
+        }
+    }
+}
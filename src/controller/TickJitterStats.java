@@ -0,0 +1,92 @@
+package controller;
+
+/**
+ * Scheduling jitter statistics of the game loop (or of a GameHost shard).
+ * Records how late each tick started compared to its scheduled time.
+ */
+public class TickJitterStats {
+    private long ticks;
+    private long droppedTicks;
+    private long sumNanos;
+    private double sumSquaresNanos;
+    private long maxNanos;
+
+    /**
+     * Record the lateness of one tick
+     */
+    public synchronized void record(long latenessNanos) {
+        ticks++;
+        sumNanos += latenessNanos;
+        sumSquaresNanos += (double) latenessNanos * latenessNanos;
+        if (latenessNanos > maxNanos) {
+            maxNanos = latenessNanos;
+        }
+    }
+
+    /**
+     * Record the lateness of a batch of ticks at once
+     */
+    public synchronized void recordAll(long count, long sumNanos, double sumSquaresNanos, long maxNanos) {
+        ticks += count;
+        this.sumNanos += sumNanos;
+        this.sumSquaresNanos += sumSquaresNanos;
+        if (maxNanos > this.maxNanos) {
+            this.maxNanos = maxNanos;
+        }
+    }
+
+    /**
+     * Record ticks skipped because the loop fell too far behind
+     */
+    public synchronized void recordDropped(long count) {
+        droppedTicks += count;
+    }
+
+    public synchronized void reset() {
+        ticks = 0;
+        droppedTicks = 0;
+        sumNanos = 0;
+        sumSquaresNanos = 0;
+        maxNanos = 0;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    public synchronized long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * Mean lateness in milliseconds
+     */
+    public synchronized double getMeanMillis() {
+        return ticks == 0 ? 0 : sumNanos / (double) ticks / 1e6;
+    }
+
+    /**
+     * Standard deviation of the lateness in milliseconds
+     */
+    public synchronized double getStdDevMillis() {
+        if (ticks == 0) {
+            return 0;
+        }
+        double mean = sumNanos / (double) ticks;
+        double variance = Math.max(0, sumSquaresNanos / ticks - mean * mean);
+        return Math.sqrt(variance) / 1e6;
+    }
+
+    /**
+     * Largest lateness in milliseconds
+     */
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ticks=%d dropped=%d jitter mean=%.3fms stddev=%.3fms max=%.3fms",
+                ticks, droppedTicks, getMeanMillis(), getStdDevMillis(), getMaxMillis());
+    }
+}
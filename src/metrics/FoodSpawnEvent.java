@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for placing new food
+ */
+@Name("snake.FoodSpawn")
+@Label("Food Spawn")
+@Category({"Snake", "Game Loop"})
+@Description("New food placed on a free cell")
+public class FoodSpawnEvent extends Event {
+    @Label("Free Cells")
+    @Description("Number of free cells the food was picked from")
+    public int freeCells;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+}
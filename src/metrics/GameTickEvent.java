@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one tick of the game loop, spanning the game update
+ */
+@Name("snake.GameTick")
+@Label("Game Tick")
+@Category({"Snake", "Game Loop"})
+@Description("One tick of the game loop")
+public class GameTickEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(GameTickEvent.class);
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Lateness")
+    @Description("How late the loop started the tick")
+    @Timespan
+    public long lateness;
+
+    @Label("Result")
+    public String result;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Snake Length")
+    public int snakeLength;
+
+    /**
+     * Check if a recording wants the event, so ticks only create one then
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+}
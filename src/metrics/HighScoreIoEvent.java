@@ -0,0 +1,34 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for reading or appending high scores
+ */
+@Name("snake.HighScoreIo")
+@Label("High Score I/O")
+@Category({"Snake", "Persistence"})
+@Description("High scores read from or appended to the journal")
+public class HighScoreIoEvent extends Event {
+    public static final String LOAD = "load";
+    public static final String SAVE = "save";
+
+    @Label("Operation")
+    @Description("load or save")
+    public String operation;
+
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Scores")
+    public int scores;
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * JMX view of a Histogram; times in milliseconds
+ */
+public interface HistogramMXBean {
+    String getDescription();
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /**
+     * Clear the recorded values
+     */
+    void reset();
+}
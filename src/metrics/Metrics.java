@@ -0,0 +1,125 @@
+package metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The game's hot-path histograms, exported as JMX MBeans
+ * (snake:type=Histogram,name=...) and optionally dumped as text at a fixed
+ * interval.
+ *
+ * System properties read by init():
+ *   snake.metrics.jmx=false    do not register the MBeans
+ *   snake.metrics.dump=10      print all histograms every 10 seconds
+ */
+public final class Metrics {
+    public static final String DOMAIN = "snake";
+
+    public static final Histogram TICK = new Histogram("tick", "Time of one game update");
+    public static final Histogram TICK_LATENESS = new Histogram("tickLateness",
+            "How late the game loop ran each tick");
+    public static final Histogram SPAWN_FOOD = new Histogram("spawnFood", "Time to place new food");
+    public static final Histogram PAINT = new Histogram("paint", "Time of one GamePanel paint");
+    public static final Histogram INPUT_TO_RENDER = new Histogram("inputToRender",
+            "Time from a direction key press to the paint showing the turn");
+    public static final Histogram HIGH_SCORE_SAVE = new Histogram("highScoreSave",
+            "Time from submitting a high score until it was written");
+    public static final Histogram REPLAY_SAVE = new Histogram("replaySave", "Time to write a replay file");
+
+    private static final List<Histogram> HISTOGRAMS = Collections.unmodifiableList(Arrays.asList(
+            TICK, TICK_LATENESS, SPAWN_FOOD, PAINT, INPUT_TO_RENDER, HIGH_SCORE_SAVE, REPLAY_SAVE));
+
+    private static boolean registered;
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /**
+     * Register the MBeans and start the text dump as configured by the
+     * system properties
+     */
+    public static void init() {
+        if (!"false".equals(System.getProperty("snake.metrics.jmx"))) {
+            registerMBeans();
+        }
+        long dumpSeconds = Long.getLong("snake.metrics.dump", 0);
+        if (dumpSeconds > 0) {
+            startDump(TimeUnit.SECONDS.toMillis(dumpSeconds), System.out);
+        }
+    }
+
+    public static List<Histogram> getHistograms() {
+        return HISTOGRAMS;
+    }
+
+    /**
+     * Register every histogram with the platform MBean server
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Histogram histogram : HISTOGRAMS) {
+                server.registerMBean(histogram, objectName(histogram));
+            }
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Name of a histogram's MBean
+     */
+    public static ObjectName objectName(Histogram histogram) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Histogram,name=" + histogram.getName());
+    }
+
+    /**
+     * Print all histograms at a fixed interval on a daemon thread
+     */
+    public static synchronized void startDump(long periodMillis, PrintStream out) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Metrics Dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * All histograms as text, one per line
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Histogram histogram : HISTOGRAMS) {
+            text.append(histogram).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Clear all histograms
+     */
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+}
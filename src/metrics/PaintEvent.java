@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one paint of the GamePanel
+ */
+@Name("snake.Paint")
+@Label("Game Paint")
+@Category({"Snake", "Rendering"})
+@Description("One paint of the game panel")
+public class PaintEvent extends Event {
+    @Label("Snapshot")
+    @Description("Sequence number of the game snapshot painted")
+    public long sequence;
+
+    @Label("Full Render")
+    @Description("Whether the whole board was rendered into the back buffer")
+    public boolean fullRender;
+
+    @Label("Snake Length")
+    public int snakeLength;
+}
@@ -0,0 +1,133 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes a JFR recording of the game into per-phase percentiles: the
+ * duration of the game's own events (see jfr/snake.jfc), how late the game
+ * loop ran its ticks, and the GC pauses and VM operations that may have
+ * caused a stutter.
+ *
+ * Usage: java -cp out metrics.RecordingAnalyzer recording.jfr...
+ */
+public class RecordingAnalyzer {
+    // Phases in the order they are printed: event type and label
+    private static final String[][] PHASES = {
+            {"snake.GameTick", "tick"},
+            {"snake.Paint", "paint"},
+            {"snake.FoodSpawn", "food spawn"},
+            {"snake.HighScoreIo", "high score I/O"},
+            {"jdk.GCPhasePause", "GC pause"},
+            {"jdk.SafepointBegin", "safepoint"},
+            {"jdk.ExecuteVMOperation", "VM operation"},
+    };
+
+    /**
+     * Durations (or other values) of one phase in nanoseconds
+     */
+    private static class Values {
+        long[] nanos = new long[1024];
+        int count;
+
+        void add(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+
+        long percentile(double fraction) {
+            int rank = (int) Math.max(1, Math.ceil(fraction * count));
+            return nanos[rank - 1];
+        }
+    }
+
+    private final Map<String, Values> phases = new LinkedHashMap<>();
+    private long highScoreBytes;
+
+    /**
+     * Constructor
+     */
+    public RecordingAnalyzer() {
+        for (String[] phase : PHASES) {
+            phases.put(phase[1], new Values());
+        }
+        phases.put("tick lateness", new Values());
+    }
+
+    /**
+     * Add the events of a recording to the summary
+     */
+    public void read(String file) throws IOException {
+        try (RecordingFile recording = new RecordingFile(Paths.get(file))) {
+            while (recording.hasMoreEvents()) {
+                add(recording.readEvent());
+            }
+        }
+    }
+
+    private void add(RecordedEvent event) {
+        String type = event.getEventType().getName();
+        for (String[] phase : PHASES) {
+            if (phase[0].equals(type)) {
+                phases.get(phase[1]).add(event.getDuration().toNanos());
+                break;
+            }
+        }
+        if (type.equals("snake.GameTick")) {
+            Duration lateness = event.getDuration("lateness");
+            phases.get("tick lateness").add(lateness.toNanos());
+        } else if (type.equals("snake.HighScoreIo")) {
+            highScoreBytes += event.getLong("bytes");
+        }
+    }
+
+    /**
+     * Summary table, one line per phase that has events
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-16s %9s %10s %10s %10s %10s %10s%n",
+                "phase", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, Values> phase : phases.entrySet()) {
+            Values values = phase.getValue();
+            if (values.count == 0) {
+                continue;
+            }
+            Arrays.sort(values.nanos, 0, values.count);
+            text.append(String.format(Locale.ROOT, "%-16s %9d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    phase.getKey(), values.count, values.percentile(0.5) / 1e6, values.percentile(0.9) / 1e6,
+                    values.percentile(0.99) / 1e6, values.percentile(0.999) / 1e6,
+                    values.nanos[values.count - 1] / 1e6));
+        }
+        if (highScoreBytes > 0) {
+            text.append("high score bytes: ").append(highScoreBytes).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java -cp out metrics.RecordingAnalyzer recording.jfr...");
+            System.exit(2);
+        }
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        for (String file : args) {
+            try {
+                analyzer.read(file);
+            } catch (IOException e) {
+                System.err.println("Error reading recording: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        System.out.print(analyzer.summary());
+    }
+}
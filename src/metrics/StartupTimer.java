@@ -0,0 +1,99 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock timing of the startup phases, from JVM start to the first
+ * frame on screen and the high scores being loaded. Phases are marked when
+ * they end, from any thread; times are relative to the JVM start.
+ *
+ * System property:
+ *   snake.startup.log=true    print each phase as it ends
+ */
+public final class StartupTimer {
+    // When main() started, and how long the JVM took to get there (looked
+    // up on first use, as the management classes take a while to load)
+    private static boolean started;
+    private static long mainNanos;
+    private static long jvmNanos = -1;
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> phaseNanos = new ArrayList<>();
+    private static boolean firstFrame;
+    private static boolean log;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Start timing; call first thing in main()
+     */
+    public static synchronized void begin() {
+        started = true;
+        mainNanos = System.nanoTime();
+        log = Boolean.getBoolean("snake.startup.log");
+        mark("main");
+    }
+
+    /**
+     * Record that a phase just ended
+     */
+    public static synchronized void mark(String phase) {
+        if (!started) {
+            return; // Not timing, e.g. headless tools
+        }
+        long nanos = System.nanoTime() - mainNanos;
+        phases.add(phase);
+        phaseNanos.add(nanos);
+        if (log) {
+            System.err.printf(Locale.ROOT, "startup %-14s %8.1f ms  [%s]%n",
+                    phase, (nanos + getJvmNanos()) / 1e6, Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Time from JVM start to main()
+     */
+    private static long getJvmNanos() {
+        if (jvmNanos < 0) {
+            long sinceMain = System.nanoTime() - mainNanos;
+            jvmNanos = Math.max(0, TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime())
+                    - sinceMain);
+        }
+        return jvmNanos;
+    }
+
+    /**
+     * Record that the first frame was painted; later calls are ignored
+     */
+    public static synchronized void markFirstFrame() {
+        if (!firstFrame) {
+            firstFrame = true;
+            mark("first frame");
+        }
+    }
+
+    /**
+     * Milliseconds from JVM start to the end of a phase, -1 if it has not ended
+     */
+    public static synchronized double getMillis(String phase) {
+        int i = phases.indexOf(phase);
+        return i < 0 ? -1 : (phaseNanos.get(i) + getJvmNanos()) / 1e6;
+    }
+
+    /**
+     * All phases ended so far with their times, one per line
+     */
+    public static synchronized String dump() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < phases.size(); i++) {
+            text.append(String.format(Locale.ROOT, "%-14s %8.1f ms%n", phases.get(i),
+                    (phaseNanos.get(i) + getJvmNanos()) / 1e6));
+        }
+        return text.toString();
+    }
+}
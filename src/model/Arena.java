@@ -0,0 +1,475 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Arena mode: many snakes (bots and players) and many food items on one
+ * large wrap-around board. The rules are those of SnakeGame for every
+ * snake: a snake dies when its head enters a cell occupied at the start of
+ * the tick (tails only move after the collision check), eating grows it by
+ * one. Snakes whose heads enter the same cell all die. Dead snakes leave
+ * food on every other cell of their body and come back after a while.
+ *
+ * Collisions are checked against one shared grid holding the number of
+ * the snake on every cell, so a move costs O(1) however many snakes there
+ * are; food is kept in a FoodGrid so bots find the food near them quickly.
+ *
+ * A tick runs in two phases. Planning (pilots choosing their moves and the
+ * collision check) only reads the state of the previous tick and writes
+ * each snake's own fields, so it runs in parallel over ranges of snakes.
+ * The moves are then applied on the calling thread in snake order; the
+ * outcome of a move does not depend on the order the snakes were planned
+ * or resolved in, so a seeded arena plays the same on any number of
+ * threads.
+ */
+public class Arena implements AutoCloseable {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int INITIAL_LENGTH = 3;
+    private static final int RESPAWN_TICKS = 30;
+    private static final int SPAWN_ATTEMPTS = 32;
+    private static final int LEAF_SNAKES = 64;
+
+    private final int columns;
+    private final int rows;
+
+    // Number + 1 of the snake on every cell, 0 if empty; while moves are
+    // resolved, minus (number + 1) of the first snake heading for the cell
+    private final int[] owner;
+    private final FoodGrid food;
+    private final int foodTarget;
+
+    private final List<Snake> snakes = new ArrayList<>();
+    private final SplittableRandom random;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private long ticks;
+
+    /**
+     * Steers a snake. Called in parallel for different snakes during a
+     * tick, so a pilot shared by several snakes must be stateless.
+     */
+    public interface Pilot {
+        /**
+         * Choose the snake's next move
+         * @param random the snake's own random numbers, to keep the arena deterministic
+         * @return the direction to take, or null to go straight
+         */
+        Direction nextDirection(Arena arena, int snake, SplittableRandom random);
+    }
+
+    /**
+     * State of one snake, including what it planned this tick
+     */
+    private static class Snake {
+        final SnakeBuffer body = new SnakeBuffer();
+        final Pilot pilot;
+        final SplittableRandom random;
+        Direction direction = Direction.RIGHT;
+        Direction nextDirection = Direction.RIGHT;
+        boolean alive;
+        long respawnTick;
+        int score;
+        int deaths;
+
+        // Planned move: the head's next cell, and whether it dies or eats
+        int next;
+        boolean dies;
+        boolean eats;
+
+        Snake(Pilot pilot, SplittableRandom random) {
+            this.pilot = pilot;
+            this.random = random;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param foodTarget food items kept on the board
+     * @param parallelism threads planning the moves, 1 to plan on the caller's thread
+     */
+    public Arena(int columns, int rows, int foodTarget, long seed, int parallelism) {
+        if (columns < 4 || rows < 4 || columns > 0xFFFF || rows > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid arena size: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.owner = new int[columns * rows];
+        this.food = new FoodGrid(columns, rows);
+        this.foodTarget = foodTarget;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        spawnFood();
+    }
+
+    /**
+     * Add a snake, placed on a free spot right away if there is one
+     * @param pilot steers the snake, null for a player steered through changeDirection()
+     * @return the number of the snake
+     */
+    public int addSnake(Pilot pilot) {
+        int number = snakes.size();
+        Snake snake = new Snake(pilot, new SplittableRandom(SelfPlayEvaluator.seed(seed, number)));
+        snakes.add(snake);
+        spawn(number, snake);
+        return number;
+    }
+
+    /**
+     * Turn a player's snake on the next tick; call between ticks
+     * @return false if the turn is not allowed (reversing or same direction)
+     */
+    public boolean changeDirection(int snake, Direction direction) {
+        return turn(snakes.get(snake), direction);
+    }
+
+    private static boolean turn(Snake snake, Direction direction) {
+        if (direction == null || direction == snake.direction || direction == opposite(snake.direction)) {
+            return false;
+        }
+        snake.nextDirection = direction;
+        return true;
+    }
+
+    /**
+     * Advance all snakes by one tick
+     */
+    public void step() {
+        ticks++;
+
+        // Plan every move against the board as the previous tick left it
+        if (pool != null) {
+            pool.invoke(new PlanTask(0, snakes.size()));
+        } else {
+            plan(0, snakes.size());
+        }
+
+        // Claim the target cells in snake order: the first claimant marks
+        // the cell, later ones kill it and themselves
+        for (int i = 0; i < snakes.size(); i++) {
+            Snake snake = snakes.get(i);
+            if (!snake.alive || snake.dies) {
+                continue;
+            }
+            int claimant = owner[snake.next];
+            if (claimant < 0) {
+                snake.dies = true;
+                snakes.get(-claimant - 1).dies = true;
+            } else {
+                owner[snake.next] = -(i + 1);
+            }
+        }
+
+        // Apply the moves
+        for (int i = 0; i < snakes.size(); i++) {
+            Snake snake = snakes.get(i);
+            if (!snake.alive) {
+                if (ticks >= snake.respawnTick) {
+                    spawn(i, snake);
+                }
+            } else if (snake.dies) {
+                if (owner[snake.next] < 0) {
+                    owner[snake.next] = 0;
+                }
+                kill(snake);
+            } else {
+                move(i, snake);
+            }
+        }
+        spawnFood();
+    }
+
+    /**
+     * Plan the moves of a range of snakes. Only the planned fields and the
+     * next direction of each snake are written, so pilots see the same
+     * board whichever snakes were planned before
+     */
+    private void plan(int from, int to) {
+        for (int i = from; i < to; i++) {
+            Snake snake = snakes.get(i);
+            if (!snake.alive) {
+                continue;
+            }
+            if (snake.pilot != null) {
+                turn(snake, snake.pilot.nextDirection(this, i, snake.random));
+            }
+            snake.next = neighbour(cell(snake.body.get(0)), snake.nextDirection);
+            snake.dies = owner[snake.next] != 0;
+            snake.eats = !snake.dies && food.contains(snake.next);
+        }
+    }
+
+    /**
+     * Push the new head, then eat or pop the tail
+     */
+    private void move(int number, Snake snake) {
+        int next = snake.next;
+        snake.direction = snake.nextDirection;
+        owner[next] = number + 1;
+        snake.body.addFirst(next % columns, next / columns);
+        if (snake.eats) {
+            food.remove(next);
+            snake.score++;
+        } else {
+            owner[cell(snake.body.removeLast())] = 0;
+        }
+    }
+
+    /**
+     * Take a snake off the board, leaving food on every other body cell
+     */
+    private void kill(Snake snake) {
+        SnakeBuffer body = snake.body;
+        for (int i = 0; i < body.length(); i++) {
+            int cell = cell(body.get(i));
+            owner[cell] = 0;
+            if ((i & 1) == 1) {
+                food.add(cell);
+            }
+        }
+        body.clear();
+        snake.alive = false;
+        snake.deaths++;
+        snake.respawnTick = ticks + RESPAWN_TICKS;
+    }
+
+    /**
+     * Place a snake on a random free spot, stretched out behind its head;
+     * it tries again on the next tick if no spot is found
+     */
+    private void spawn(int number, Snake snake) {
+        for (int attempt = 0; attempt < SPAWN_ATTEMPTS; attempt++) {
+            int head = random.nextInt(owner.length);
+            Direction direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            Direction back = opposite(direction);
+
+            boolean free = true;
+            for (int i = 0, cell = head; i < INITIAL_LENGTH && free; i++, cell = neighbour(cell, back)) {
+                free = owner[cell] == 0 && !food.contains(cell);
+            }
+            if (!free) {
+                continue;
+            }
+
+            // Push from the tail, so the head ends up first
+            int tail = head;
+            for (int i = 1; i < INITIAL_LENGTH; i++) {
+                tail = neighbour(tail, back);
+            }
+            for (int i = 0, cell = tail; i < INITIAL_LENGTH; i++, cell = neighbour(cell, direction)) {
+                snake.body.addFirst(cell % columns, cell / columns);
+                owner[cell] = number + 1;
+            }
+            snake.direction = direction;
+            snake.nextDirection = direction;
+            snake.score = 0;
+            snake.alive = true;
+            return;
+        }
+        snake.respawnTick = ticks + 1;
+    }
+
+    /**
+     * Top the food up to the target on random free cells
+     */
+    private void spawnFood() {
+        int attempts = 0;
+        while (food.size() < foodTarget && attempts++ < foodTarget * 4 + SPAWN_ATTEMPTS) {
+            int cell = random.nextInt(owner.length);
+            if (owner[cell] == 0) {
+                food.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Plans a range of snakes, splitting it so other workers can steal half
+     * of it
+     */
+    private class PlanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        PlanTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SNAKES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlanTask(from, middle), new PlanTask(middle, to));
+                return;
+            }
+            plan(from, to);
+        }
+    }
+
+    // Board geometry
+
+    /**
+     * Cell next to the given one, wrapping around the edges
+     */
+    public int neighbour(int cell, Direction direction) {
+        int x = cell % columns;
+        int y = cell / columns;
+        switch (direction) {
+            case UP:
+                return (y == 0 ? rows - 1 : y - 1) * columns + x;
+            case DOWN:
+                return (y == rows - 1 ? 0 : y + 1) * columns + x;
+            case LEFT:
+                return y * columns + (x == 0 ? columns - 1 : x - 1);
+            default:
+                return y * columns + (x == columns - 1 ? 0 : x + 1);
+        }
+    }
+
+    /**
+     * Wrap-around distance between two cells
+     */
+    public int distance(int from, int to) {
+        return food.distance(from % columns, from / columns, to);
+    }
+
+    public static Direction opposite(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            default:
+                return Direction.LEFT;
+        }
+    }
+
+    private int cell(int packed) {
+        return SnakeBuffer.unpackY(packed) * columns + SnakeBuffer.unpackX(packed);
+    }
+
+    // Read-only accessors, safe to use from pilots during a tick
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getSnakeCount() {
+        return snakes.size();
+    }
+
+    /**
+     * Cells of a snake, head first; empty while it is dead
+     */
+    public SnakeBuffer getSnake(int snake) {
+        return snakes.get(snake).body;
+    }
+
+    /**
+     * Cell index (y * columns + x) of a snake's head; the snake must be alive
+     */
+    public int getHead(int snake) {
+        return cell(snakes.get(snake).body.get(0));
+    }
+
+    public Direction getDirection(int snake) {
+        return snakes.get(snake).direction;
+    }
+
+    public boolean isAlive(int snake) {
+        return snakes.get(snake).alive;
+    }
+
+    /**
+     * Food eaten since the snake last (re)spawned
+     */
+    public int getScore(int snake) {
+        return snakes.get(snake).score;
+    }
+
+    public int getDeaths(int snake) {
+        return snakes.get(snake).deaths;
+    }
+
+    /**
+     * Number of the snake on a cell, -1 if it is empty
+     */
+    public int getOwner(int cell) {
+        int number = owner[cell];
+        return number > 0 ? number - 1 : -1;
+    }
+
+    /**
+     * Check if no snake is on a cell
+     */
+    public boolean isFree(int cell) {
+        return owner[cell] == 0;
+    }
+
+    public boolean hasFood(int cell) {
+        return food.contains(cell);
+    }
+
+    public int getFoodCount() {
+        return food.size();
+    }
+
+    /**
+     * Food closest to a cell, searching the buckets of FoodGrid.BUCKET_SIZE
+     * cells within the given number of rings around it
+     * @return the food's cell, or -1 if there is none that close
+     */
+    public int findFood(int cell, int rings) {
+        return food.nearest(cell % columns, cell / columns, rings);
+    }
+
+    /**
+     * Hash of the whole state (snakes, scores and food), to check that two
+     * runs played the same
+     */
+    public long checksum() {
+        long hash = ticks * 31 + food.size();
+        for (Snake snake : snakes) {
+            hash = hash * 31 + (snake.alive ? 1 : 0);
+            hash = hash * 31 + snake.score;
+            hash = hash * 31 + snake.deaths;
+            for (int i = 0; i < snake.body.length(); i++) {
+                hash = hash * 31 + snake.body.get(i);
+            }
+        }
+        for (int cell = 0; cell < owner.length; cell++) {
+            if (food.contains(cell)) {
+                hash = hash * 31 + cell;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Stop the planning threads
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
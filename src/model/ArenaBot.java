@@ -0,0 +1,109 @@
+package model;
+
+import java.util.SplittableRandom;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Simple arena pilot: heads for the closest food it can find nearby,
+ * never enters an occupied cell if it can help it, keeps away from cells
+ * another snake's head could enter on the same tick, and avoids cells with
+ * no way out. Without food nearby it wanders, mostly going straight.
+ * It is stateless, so one instance can steer every snake.
+ */
+public class ArenaBot implements Arena.Pilot {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SEARCH_RINGS = 2;
+    private static final int WANDER_TURN_ODDS = 16;
+
+    // Penalties, in cells of detour
+    private static final int HEAD_NEARBY = 64;
+    private static final int DEAD_END = 1024;
+
+    @Override
+    public Direction nextDirection(Arena arena, int snake, SplittableRandom random) {
+        int head = arena.getHead(snake);
+        Direction current = arena.getDirection(snake);
+        int target = arena.findFood(head, SEARCH_RINGS);
+
+        // Straight on first, the turns in random order, so ties do not
+        // always go the same way; when wandering, a turn first
+        Direction first = current;
+        Direction second = left(current);
+        Direction third = Arena.opposite(second);
+        if (random.nextBoolean()) {
+            third = second;
+            second = Arena.opposite(third);
+        }
+        if (target < 0 && random.nextInt(WANDER_TURN_ODDS) == 0) {
+            first = second;
+            second = current;
+        }
+
+        Direction best = null;
+        int bestCost = Integer.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            Direction direction = i == 0 ? first : i == 1 ? second : third;
+            int cost = cost(arena, snake, arena.neighbour(head, direction), target);
+            if (cost < bestCost) {
+                best = direction;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cost of moving the head to a cell, Integer.MAX_VALUE if it is occupied
+     */
+    private static int cost(Arena arena, int snake, int next, int target) {
+        if (!arena.isFree(next)) {
+            return Integer.MAX_VALUE;
+        }
+        int cost = target >= 0 ? arena.distance(next, target) : 0;
+        if (isNearOtherHead(arena, snake, next)) {
+            cost += HEAD_NEARBY;
+        }
+        if (freeNeighbours(arena, next) == 0) {
+            cost += DEAD_END;
+        }
+        return cost;
+    }
+
+    /**
+     * Check if the head of another snake is next to the cell
+     */
+    private static boolean isNearOtherHead(Arena arena, int snake, int cell) {
+        for (Direction direction : DIRECTIONS) {
+            int neighbour = arena.neighbour(cell, direction);
+            int other = arena.getOwner(neighbour);
+            if (other >= 0 && other != snake && arena.getHead(other) == neighbour) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int freeNeighbours(Arena arena, int cell) {
+        int free = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (arena.isFree(arena.neighbour(cell, direction))) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    private static Direction left(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.LEFT;
+            case LEFT:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.RIGHT;
+            default:
+                return Direction.UP;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package model;
+
+import java.util.Arrays;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Strategy that plans the snake's moves: the shortest path to the food, if
+ * the snake can still reach its own tail after eating it, otherwise the way
+ * towards its tail until the food is safe to take.
+ *
+ * Searches use A* with the wrap-around distance as heuristic. They know
+ * that the body moves on: the cell of the segment i places from the head
+ * (of a snake of length n) can be entered from the (n - i + 1)th move on,
+ * since the tail only moves after the collision check in update(). The
+ * safety check builds the snake as it will be after eating the food and
+ * searches from the food for a body cell the new head can enter once it
+ * is vacated; from there the snake can follow its own body forever.
+ *
+ * Waiting can go on forever on a nearly full board, when the food lies in
+ * a pocket it never becomes safe in. So once no safe path to the food has
+ * been found for STALL_CELLS times the board size in ticks, the snake
+ * follows a fixed Hamiltonian cycle of the board wherever that is safe:
+ * after as many cycle moves in a row as it is long, its body lies along
+ * the cycle, and from then on following it is always safe and passes the
+ * food. On a crowded board the body seldom gets into line, so after
+ * GIVE_UP_CELLS times the board size in ticks the snake takes the shortest
+ * path to the food even if it is not safe; every game ends.
+ *
+ * The planner keeps the push sequence number of every cell the snake
+ * occupied, updated with one write per tick, and its search buffers are
+ * primitive arrays of the board size allocated once, so planning does not
+ * allocate.
+ */
+public class Autopilot implements Strategy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final long NONE = Long.MIN_VALUE / 2;
+    private static final int STALL_CELLS = 2;
+    private static final int GIVE_UP_CELLS = 6;
+
+    private int columns;
+    private int rows;
+
+    // Push sequence number of the snake cell, by cell index; a cell is part
+    // of the snake if its number is one of the last length numbers
+    private long[] sequence = new long[0];
+    private long headSequence;
+
+    // Game state the sequence numbers were last synced with
+    private SnakeGame syncedGame;
+    private long syncedSeed;
+    private long syncedTicks;
+    private int syncedHead;
+    private boolean synced;
+
+    // Search buffers, by cell index
+    private int[] cost = new int[0];
+    private int[] visited = new int[0];
+    private int[] parent = new int[0];
+    private int[][] buckets = new int[3][0];
+    private final int[] bucketSizes = new int[3];
+    private int searchMark;
+
+    // Path found by the last search, start first
+    private int[] path = new int[0];
+    private int pathLength;
+
+    // Path cells of the snake as it will be after eating, with their move
+    // number on the path
+    private int[] pathMark = new int[0];
+    private int[] pathMove = new int[0];
+    private int virtualMark;
+
+    // Snake the searches run against (the current or the virtual one)
+    private long searchHeadSequence;
+    private int searchLength;
+    private boolean searchVirtual;
+    private int avoidedCell = -1;
+
+    // Target of the current search, for the heuristic
+    private int targetX;
+    private int targetY;
+
+    // Successor of every cell on a Hamiltonian cycle of the board, null if
+    // it has none, and the tick a safe path to the food was last found
+    private int[] cycle;
+    private long foodPathTick;
+
+    @Override
+    public void reset(SnakeGame game) {
+        synced = false;
+    }
+
+    /**
+     * Plan the snake's next move
+     * @return the direction of the first planned move, or null to go
+     *         straight if every move is deadly
+     */
+    @Override
+    public Direction nextDirection(SnakeGame game) {
+        sync(game);
+        SnakeBuffer snake = game.getSnake();
+        int length = snake.length();
+        int head = cell(snake.get(0));
+
+        // Shortest path to the food, if the snake survives eating it, or
+        // after stalling for too long in any case
+        Food food = game.getFood();
+        int foodCell = food != null ? food.getY() * columns + food.getX() : -1;
+        long stalled = game.getTicks() - foodPathTick;
+        if (food != null) {
+            useSnake(headSequence, length, false);
+            if (search(head, 0, foodCell, false)) {
+                int first = path[1];
+                if (isSafeAfterEating(snake, length)) {
+                    foodPathTick = game.getTicks();
+                    return direction(head, first);
+                }
+                if (stalled > (long) GIVE_UP_CELLS * sequence.length) {
+                    return direction(head, first);
+                }
+            }
+        }
+
+        // Stalled for a long time: follow the cycle where that is safe
+        int tail = cell(snake.get(length - 1));
+        if (cycle != null && stalled > (long) STALL_CELLS * sequence.length) {
+            Direction direction = cycleMove(snake, length, head, tail, foodCell);
+            if (direction != null) {
+                return direction;
+            }
+        }
+
+        // Otherwise wait for a safe path, around the food if possible:
+        // growing on the way could make the tail catch up
+        useSnake(headSequence, length, false);
+        Direction direction = waitingMove(head, tail, foodCell);
+        if (direction == null) {
+            direction = waitingMove(head, tail, -1);
+        }
+        if (direction != null) {
+            return direction;
+        }
+
+        // Any move that does not kill the snake right away
+        for (Direction move : DIRECTIONS) {
+            if (isEnterable(neighbour(head, move), 1)) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move to the neighbour farthest from the tail from which the snake can
+     * still reach its body as it is vacated. Following the tail closely
+     * would keep the body in the same loop, and the food could stay unsafe
+     * forever; taking the long way round changes the shape of the body.
+     * @param avoided cell not to enter, or -1
+     * @return null if no neighbour is safe
+     */
+    private Direction waitingMove(int head, int tail, int avoided) {
+        avoidedCell = avoided;
+        Direction best = null;
+        int bestDistance = -1;
+        for (Direction direction : DIRECTIONS) {
+            int next = neighbour(head, direction);
+            if (!isEnterable(next, 1)) {
+                continue;
+            }
+            int distance = distance(next, tail);
+            if (distance > bestDistance && (isBody(next) || search(next, 1, tail, true))) {
+                best = direction;
+                bestDistance = distance;
+            }
+        }
+        avoidedCell = -1;
+        return best;
+    }
+
+    /**
+     * Move to the head's successor on the cycle if the snake can still
+     * reach its body from there (grown by one, if the food is there)
+     * @return null if that is not safe
+     */
+    private Direction cycleMove(SnakeBuffer snake, int length, int head, int tail, int foodCell) {
+        int next = cycle[head];
+        useSnake(headSequence, length, false);
+        if (!isEnterable(next, 1)) {
+            return null;
+        }
+        if (next == foodCell) {
+            path[0] = head;
+            path[1] = next;
+            pathLength = 2;
+            if (!isSafeAfterEating(snake, length)) {
+                return null;
+            }
+        } else if (!isBody(next) && !search(next, 1, tail, true)) {
+            return null;
+        }
+        return direction(head, next);
+    }
+
+    /**
+     * Check if the snake, after following the found path and eating the food
+     * at its end, can reach a cell of its body as it is vacated
+     */
+    private boolean isSafeAfterEating(SnakeBuffer snake, int length) {
+        int moves = pathLength - 1;
+        virtualMark++;
+        for (int move = 1; move <= moves; move++) {
+            pathMark[path[move]] = virtualMark;
+            pathMove[path[move]] = move;
+        }
+
+        // The snake grows by one, and its tail is the path cell or old
+        // segment with the oldest sequence number still in the body
+        int food = path[moves];
+        int tail = moves > length ? path[moves - length] : cell(snake.get(length - moves));
+        useSnake(headSequence + moves, length + 1, true);
+        return search(food, 0, tail, true);
+    }
+
+    /**
+     * Set the snake the searches run against
+     */
+    private void useSnake(long headSequence, int length, boolean virtual) {
+        this.searchHeadSequence = headSequence;
+        this.searchLength = length;
+        this.searchVirtual = virtual;
+    }
+
+    /**
+     * Check if the head can enter the cell on the given move
+     */
+    private boolean isEnterable(int cell, int move) {
+        if (cell == avoidedCell) {
+            return false;
+        }
+        long number = searchVirtual && pathMark[cell] == virtualMark
+                ? headSequence + pathMove[cell] : sequence[cell];
+        long index = searchHeadSequence - number;
+        return index >= searchLength || index < 0 || move >= searchLength - index + 1;
+    }
+
+    /**
+     * Check if the cell is part of the snake the search runs against
+     */
+    private boolean isBody(int cell) {
+        long number = searchVirtual && pathMark[cell] == virtualMark
+                ? headSequence + pathMove[cell] : sequence[cell];
+        long index = searchHeadSequence - number;
+        return index >= 0 && index < searchLength;
+    }
+
+    /**
+     * A* search from the start cell over the cells the head can enter when
+     * it gets there. Finds the shortest path to the target, or in survival
+     * mode any path to a body cell the head can enter (heading for the
+     * target, usually the tail). Leaves the path in path[0..pathLength).
+     * @param startMove number of moves it took to get to the start cell
+     * @return false if there is no such path
+     */
+    private boolean search(int start, int startMove, int target, boolean survival) {
+        int mark = ++searchMark;
+        targetX = target % columns;
+        targetY = target / columns;
+        Arrays.fill(bucketSizes, 0);
+
+        visited[start] = mark;
+        cost[start] = startMove;
+        parent[start] = -1;
+        int f = startMove + heuristic(start);
+        buckets[f % 3][bucketSizes[f % 3]++] = start;
+        int pending = 1;
+
+        // Moves change the wrap-around distance by -1, 0 or +1, so the f
+        // values of queued cells span at most three consecutive values. Each
+        // bucket is a stack: among cells with the same f the deepest comes
+        // first, so on open ground the search goes straight for the target
+        // instead of filling the whole rectangle of equally good cells
+        while (pending > 0) {
+            int[] bucket = buckets[f % 3];
+            while (bucketSizes[f % 3] > 0) {
+                int cell = bucket[--bucketSizes[f % 3]];
+                pending--;
+                int g = cost[cell];
+                if (g + heuristic(cell) != f) {
+                    continue; // Queued again with a lower cost
+                }
+                if (!survival && cell == target) {
+                    return tracePath(cell, startMove);
+                }
+
+                int move = g + 1;
+                for (Direction direction : DIRECTIONS) {
+                    int next = neighbour(cell, direction);
+                    if (visited[next] == mark && cost[next] <= move) {
+                        continue;
+                    }
+                    if (!isEnterable(next, move)) {
+                        continue;
+                    }
+                    visited[next] = mark;
+                    cost[next] = move;
+                    parent[next] = cell;
+                    if (survival && next != start && isBody(next)) {
+                        return tracePath(next, startMove);
+                    }
+                    int nextF = move + heuristic(next);
+                    buckets[nextF % 3][bucketSizes[nextF % 3]++] = next;
+                    pending++;
+                }
+            }
+            f++;
+        }
+        return false;
+    }
+
+    /**
+     * Store the path from the search start to the cell
+     */
+    private boolean tracePath(int end, int startMove) {
+        pathLength = cost[end] - startMove + 1;
+        for (int i = pathLength - 1, cell = end; i >= 0; i--, cell = parent[cell]) {
+            path[i] = cell;
+        }
+        return true;
+    }
+
+    /**
+     * Wrap-around distance to the search target
+     */
+    private int heuristic(int cell) {
+        int dx = Math.abs(cell % columns - targetX);
+        int dy = Math.abs(cell / columns - targetY);
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    /**
+     * Wrap-around distance between two cells
+     */
+    private int distance(int from, int to) {
+        int dx = Math.abs(from % columns - to % columns);
+        int dy = Math.abs(from / columns - to / columns);
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    private int neighbour(int cell, Direction direction) {
+        int x = cell % columns;
+        int y = cell / columns;
+        switch (direction) {
+            case UP:
+                return (y == 0 ? rows - 1 : y - 1) * columns + x;
+            case DOWN:
+                return (y == rows - 1 ? 0 : y + 1) * columns + x;
+            case LEFT:
+                return y * columns + (x == 0 ? columns - 1 : x - 1);
+            default:
+                return y * columns + (x == columns - 1 ? 0 : x + 1);
+        }
+    }
+
+    private Direction direction(int from, int to) {
+        for (Direction direction : DIRECTIONS) {
+            if (neighbour(from, direction) == to) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Successor of every cell on a Hamiltonian cycle of the board, moving
+     * between neighbours, or null if the board is thinner than 2 cells
+     */
+    static int[] hamiltonianCycle(int columns, int rows) {
+        if (columns < 2 || rows < 2) {
+            return null;
+        }
+        int[] next = new int[columns * rows];
+        if (columns % 2 == 0) {
+            serpentine(next, columns, rows, columns, false);
+        } else if (rows % 2 == 0) {
+            serpentine(next, rows, columns, columns, true);
+        } else {
+            // Odd by odd: a cycle of all rows but the last, with a detour
+            // from a step along the row above it round the last row,
+            // through the side walls
+            serpentine(next, rows - 1, columns, columns, true);
+            int last = (rows - 1) * columns;
+            for (int x = 0; x < columns; x++) {
+                int from = last - columns + x;
+                int to = next[from];
+                if (to >= last - columns && to < last && Math.abs(to - from) == 1) {
+                    int step = from - to;
+                    next[from] = last + x;
+                    for (int i = 1, cx = x; i < columns; i++) {
+                        int nx = Math.floorMod(cx + step, columns);
+                        next[last + cx] = last + nx;
+                        cx = nx;
+                    }
+                    next[last + to % columns] = to;
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Fill in a cycle of a width by height grid, width even: down and up
+     * the columns below the first row, then back along the first row.
+     * With transposed, grid x and y are board y and x.
+     */
+    private static void serpentine(int[] next, int width, int height, int columns, boolean transposed) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int nx = x;
+                int ny = y;
+                if (y == 0) {
+                    if (x == 0) {
+                        ny = 1;
+                    } else {
+                        nx = x - 1;
+                    }
+                } else if (x % 2 == 0) {
+                    if (y < height - 1) {
+                        ny = y + 1;
+                    } else {
+                        nx = x + 1;
+                    }
+                } else if (y > 1) {
+                    ny = y - 1;
+                } else if (x < width - 1) {
+                    nx = x + 1;
+                } else {
+                    ny = 0;
+                }
+                int cell = transposed ? x * columns + y : y * columns + x;
+                next[cell] = transposed ? nx * columns + ny : ny * columns + nx;
+            }
+        }
+    }
+
+    private int cell(int packed) {
+        return SnakeBuffer.unpackY(packed) * columns + SnakeBuffer.unpackX(packed);
+    }
+
+    /**
+     * Bring the sequence numbers up to date with the game: one write if the
+     * snake made one move since the last call, a rebuild otherwise
+     */
+    private void sync(SnakeGame game) {
+        int columns = game.getBoardWidth() / game.getCellSize();
+        int rows = game.getBoardHeight() / game.getCellSize();
+        if (columns != this.columns || rows != this.rows) {
+            allocate(columns, rows);
+        }
+
+        SnakeBuffer snake = game.getSnake();
+        int head = cell(snake.get(0));
+        boolean sameGame = synced && game == syncedGame && game.getSeed() == syncedSeed;
+        if (sameGame && game.getTicks() == syncedTicks && head == syncedHead) {
+            return;
+        }
+        if (sameGame && game.getTicks() == syncedTicks + 1 && snake.length() > 1
+                && cell(snake.get(1)) == syncedHead) {
+            sequence[head] = ++headSequence;
+        } else {
+            // Leave a gap so no old number is within the new snake's length
+            headSequence += sequence.length + snake.length() + 2;
+            for (int i = 0; i < snake.length(); i++) {
+                sequence[cell(snake.get(i))] = headSequence - i;
+            }
+            foodPathTick = game.getTicks();
+        }
+        syncedGame = game;
+        syncedSeed = game.getSeed();
+        syncedTicks = game.getTicks();
+        syncedHead = head;
+        synced = true;
+    }
+
+    private void allocate(int columns, int rows) {
+        int cells = columns * rows;
+        this.columns = columns;
+        this.rows = rows;
+        sequence = new long[cells];
+        Arrays.fill(sequence, NONE);
+        cost = new int[cells];
+        visited = new int[cells];
+        parent = new int[cells];
+        buckets = new int[3][cells];
+        path = new int[cells + 1];
+        pathMark = new int[cells];
+        pathMove = new int[cells];
+        cycle = hamiltonianCycle(columns, rows);
+        searchMark = 0;
+        virtualMark = 0;
+        synced = false;
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * Cells of the board whose contents changed, so a view can redraw just
+ * those cells instead of the whole board. If too many cells changed, or
+ * the board was reset, the changes are marked as full and everything has
+ * to be redrawn.
+ */
+public class BoardChanges {
+    private static final int MAX_CELLS = 256;
+
+    private final int[] cells = new int[MAX_CELLS];
+    private int size;
+    private boolean full;
+
+    /**
+     * Record a changed cell
+     */
+    void add(int x, int y) {
+        if (full) {
+            return;
+        }
+        if (size == MAX_CELLS) {
+            markFull();
+            return;
+        }
+        cells[size++] = SnakeBuffer.pack(x, y);
+    }
+
+    /**
+     * Record that the whole board changed
+     */
+    void markFull() {
+        full = true;
+        size = 0;
+    }
+
+    void clear() {
+        full = false;
+        size = 0;
+    }
+
+    /**
+     * Copy these changes into another instance and reset them
+     */
+    void drainTo(BoardChanges target) {
+        target.full = full;
+        target.size = size;
+        System.arraycopy(cells, 0, target.cells, 0, size);
+        clear();
+    }
+
+    // Read-only accessors
+
+    /**
+     * Check if the whole board has to be redrawn
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int i) {
+        return SnakeBuffer.unpackX(cells[i]);
+    }
+
+    public int getY(int i) {
+        return SnakeBuffer.unpackY(cells[i]);
+    }
+}
@@ -0,0 +1,138 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Food items on a large wrap-around board, hashed into square buckets so a
+ * snake can find the food near it without scanning the board.
+ * A cell holds at most one item. Every bucket keeps its cells in an array,
+ * and every cell its position in that array, so adding and removing are
+ * O(1) and finding the nearest item only looks at the buckets around the
+ * starting point.
+ */
+class FoodGrid {
+    static final int BUCKET_SIZE = 32;
+
+    private final int columns;
+    private final int rows;
+    private final int bucketColumns;
+    private final int bucketRows;
+
+    // Position + 1 of every food cell in its bucket, 0 if the cell has none
+    private final int[] slot;
+
+    // Food cells of every bucket
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+    private int size;
+
+    /**
+     * Constructor for an empty board
+     */
+    FoodGrid(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        this.bucketColumns = (columns + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        this.bucketRows = (rows + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        slot = new int[columns * rows];
+        buckets = new int[bucketColumns * bucketRows][4];
+        bucketSizes = new int[bucketColumns * bucketRows];
+    }
+
+    boolean contains(int cell) {
+        return slot[cell] != 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Put food on a cell
+     * @return false if there already is food on it
+     */
+    boolean add(int cell) {
+        if (slot[cell] != 0) {
+            return false;
+        }
+        int bucket = bucketOf(cell);
+        int position = bucketSizes[bucket]++;
+        if (position == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], position * 2);
+        }
+        buckets[bucket][position] = cell;
+        slot[cell] = position + 1;
+        size++;
+        return true;
+    }
+
+    /**
+     * Take the food off a cell
+     * @return false if there was none
+     */
+    boolean remove(int cell) {
+        int position = slot[cell] - 1;
+        if (position < 0) {
+            return false;
+        }
+        // Move the bucket's last cell into the gap
+        int bucket = bucketOf(cell);
+        int last = buckets[bucket][--bucketSizes[bucket]];
+        buckets[bucket][position] = last;
+        slot[last] = position + 1;
+        slot[cell] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Find the food closest to a cell (by wrap-around distance) within the
+     * given number of rings of buckets around the cell's bucket. Once a ring
+     * has food, one more ring is searched, since a closer item can lie just
+     * across a bucket border.
+     * @return the cell of the food, or -1 if there is none that close
+     */
+    int nearest(int x, int y, int maxRings) {
+        int bucketX = x / BUCKET_SIZE;
+        int bucketY = y / BUCKET_SIZE;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int lastRing = Math.min(maxRings, Math.max(bucketColumns, bucketRows) / 2);
+        for (int ring = 0; ring <= lastRing; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                // Only the border of the ring: its top and bottom rows in
+                // full, the two side cells in between
+                int step = dy == -ring || dy == ring ? 1 : Math.max(1, 2 * ring);
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    int bucket = Math.floorMod(bucketY + dy, bucketRows) * bucketColumns
+                            + Math.floorMod(bucketX + dx, bucketColumns);
+                    int[] cells = buckets[bucket];
+                    for (int i = bucketSizes[bucket] - 1; i >= 0; i--) {
+                        int distance = distance(x, y, cells[i]);
+                        if (distance < bestDistance) {
+                            best = cells[i];
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            if (best >= 0 && ring < lastRing) {
+                lastRing = ring + 1;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Wrap-around distance from a position to a cell
+     */
+    int distance(int x, int y, int cell) {
+        int dx = Math.abs(cell % columns - x);
+        int dy = Math.abs(cell / columns - y);
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    private int bucketOf(int cell) {
+        return (cell / columns / BUCKET_SIZE) * bucketColumns + (cell % columns) / BUCKET_SIZE;
+    }
+}
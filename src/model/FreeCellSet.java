@@ -0,0 +1,106 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * Indexed set of the board cells not occupied by the snake.
+ * Cells are stored densely with a position map, so adding, removing
+ * (swap with the last element) and picking a uniformly random free cell
+ * all take constant time.
+ */
+class FreeCellSet {
+    private final int columns;
+
+    // Dense array of free cell indices and the position of each cell in it
+    private final int[] cells;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * Constructor
+     */
+    FreeCellSet(int columns, int rows) {
+        this.columns = columns;
+        this.cells = new int[columns * rows];
+        this.positions = new int[columns * rows];
+        fill();
+    }
+
+    /**
+     * Mark every cell of the board as free
+     */
+    void fill() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+            positions[i] = i;
+        }
+        size = cells.length;
+    }
+
+    /**
+     * Rebuild the set from the occupancy grid in a canonical order (free
+     * cells ascending, occupied cells descending from the end), so the order
+     * no longer depends on the history of adds and removes
+     */
+    void rebuild(OccupancyGrid occupancy) {
+        size = 0;
+        int occupied = cells.length;
+        for (int cell = 0; cell < cells.length; cell++) {
+            int position = occupancy.isOccupied(cell) ? --occupied : size++;
+            cells[position] = cell;
+            positions[cell] = position;
+        }
+    }
+
+    /**
+     * Remove a cell from the set, if present
+     */
+    void remove(int x, int y) {
+        int cell = y * columns + x;
+        int position = positions[cell];
+        if (position >= size) {
+            return;
+        }
+
+        // Move the last free cell into the hole
+        int last = cells[--size];
+        cells[position] = last;
+        positions[last] = position;
+        cells[size] = cell;
+        positions[cell] = size;
+    }
+
+    /**
+     * Add a cell to the set, if absent
+     */
+    void add(int x, int y) {
+        int cell = y * columns + x;
+        int position = positions[cell];
+        if (position < size) {
+            return;
+        }
+
+        // Swap the cell with the first cell past the end
+        int other = cells[size];
+        cells[position] = other;
+        positions[other] = position;
+        cells[size] = cell;
+        positions[cell] = size++;
+    }
+
+    /**
+     * Pick a uniformly random free cell
+     * @return the cell index (y * columns + x)
+     */
+    int randomCell(Random random) {
+        return cells[random.nextInt(size)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Headless simulation engine around a SnakeGame.
+ * Advances the game one tick per call to step(), as fast as the caller
+ * wants, without any Swing or AWT classes. The Swing controller drives the
+ * game through this engine as well.
+ */
+public class GameEngine {
+    private final SnakeGame game;
+
+    /**
+     * Outcome of a single step
+     */
+    public enum StepResult {
+        /** The snake moved one cell */
+        MOVED,
+        /** The snake moved and ate the food */
+        ATE,
+        /** The snake ran into itself */
+        DIED,
+        /** The snake filled the board */
+        WON,
+        /** Nothing happened because the game is paused or already over */
+        IDLE
+    }
+
+    /**
+     * Constructor for a headless board of the given size in cells
+     */
+    public GameEngine(int columns, int rows) {
+        this(new SnakeGame(columns, rows, 1, false));
+    }
+
+    /**
+     * Constructor wrapping an existing game
+     */
+    public GameEngine(SnakeGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Start a new game with the given random seed
+     */
+    public void reset(long seed) {
+        game.resetGame(seed);
+    }
+
+    /**
+     * Turn the snake (if the turn is allowed) and advance one tick
+     * @param direction the new direction, or null to keep going straight
+     */
+    public StepResult step(Direction direction) {
+        if (direction != null) {
+            game.changeDirection(direction);
+        }
+        return step();
+    }
+
+    /**
+     * Advance one tick using the direction already queued on the game
+     */
+    public StepResult step() {
+        if (game.isGameOver() || game.isPaused()) {
+            return StepResult.IDLE;
+        }
+
+        int scoreBefore = game.getScore();
+        game.update();
+
+        if (game.isWon()) {
+            return StepResult.WON;
+        }
+        if (game.isGameOver()) {
+            return StepResult.DIED;
+        }
+        return game.getScore() > scoreBefore ? StepResult.ATE : StepResult.MOVED;
+    }
+
+    public SnakeGame getGame() {
+        return game;
+    }
+}
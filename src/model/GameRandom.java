@@ -0,0 +1,46 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * Random number generator whose state can be saved and restored, e.g. in a
+ * replay keyframe. Uses the same linear congruential generator as
+ * java.util.Random, so it produces the same numbers for the same seed.
+ * Not thread-safe; only the game thread uses it.
+ */
+class GameRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Also called by the Random constructor
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Get the current 48-bit state
+     */
+    long getState() {
+        return state;
+    }
+
+    /**
+     * Continue from a state returned by getState()
+     */
+    void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,139 @@
+package model;
+
+/**
+ * State of the game as published after a tick, for rendering on another
+ * thread. A snapshot obtained from SnapshotExchange.acquire() is not
+ * modified until the reader acquires the next one.
+ */
+public class GameSnapshot {
+    // Copy of the snake, kept in sync incrementally
+    final SnakeBuffer snake = new SnakeBuffer();
+
+    // Cells changed since the previous snapshot
+    final BoardChanges changes = new BoardChanges();
+
+    long sequence;
+    int headX;
+    int headY;
+    boolean hasFood;
+    int foodX;
+    int foodY;
+    int score;
+    boolean gameOver;
+    boolean won;
+    boolean paused;
+    int boardWidth;
+    int boardHeight;
+    int cellSize;
+    long inputNanos;
+
+    /**
+     * Copy another snapshot, e.g. to keep it after the exchange reuses it.
+     * The snake is copied incrementally if this snapshot holds an earlier
+     * state of the same game; the changes are marked as full, since they
+     * are not relative to the previous snapshot of the copy.
+     */
+    public void copyFrom(GameSnapshot source) {
+        snake.syncFrom(source.snake);
+        changes.markFull();
+        sequence = source.sequence;
+        headX = source.headX;
+        headY = source.headY;
+        hasFood = source.hasFood;
+        foodX = source.foodX;
+        foodY = source.foodY;
+        score = source.score;
+        gameOver = source.gameOver;
+        won = source.won;
+        paused = source.paused;
+        boardWidth = source.boardWidth;
+        boardHeight = source.boardHeight;
+        cellSize = source.cellSize;
+        inputNanos = source.inputNanos;
+    }
+
+    /**
+     * Number of this snapshot; consecutive snapshots have consecutive
+     * numbers, 0 means nothing was published yet
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Read-only view of the snake's cells, head first
+     */
+    public SnakeBuffer getSnake() {
+        return snake;
+    }
+
+    /**
+     * Cells changed since the snapshot with the previous sequence number
+     */
+    public BoardChanges getChanges() {
+        return changes;
+    }
+
+    /**
+     * Head position; differs from the snake's first cell when the head
+     * just ran into the body
+     */
+    public int getHeadX() {
+        return headX;
+    }
+
+    public int getHeadY() {
+        return headY;
+    }
+
+    /**
+     * Check if there is food on the board (there is none once the game is won)
+     */
+    public boolean hasFood() {
+        return hasFood;
+    }
+
+    public int getFoodX() {
+        return foodX;
+    }
+
+    public int getFoodY() {
+        return foodY;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * When the key press that last turned the snake was made
+     * (System.nanoTime()), 0 if none was
+     */
+    public long getInputNanos() {
+        return inputNanos;
+    }
+}
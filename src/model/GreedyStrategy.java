@@ -0,0 +1,53 @@
+package model;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Steers the snake towards the food (through the walls if shorter), avoiding
+ * the snake where it can. It does not look ahead, so it usually ends by
+ * running into itself.
+ */
+public class GreedyStrategy implements Strategy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Direction towards the food whose next cell is free; any free direction
+     * if none is, or straight on
+     */
+    @Override
+    public Direction nextDirection(SnakeGame game) {
+        int columns = game.getBoardWidth() / game.getCellSize();
+        int rows = game.getBoardHeight() / game.getCellSize();
+        SnakeHead head = game.getSnakeHead();
+        Food food = game.getFood();
+        Direction fallback = null;
+        for (Direction direction : DIRECTIONS) {
+            int x = Math.floorMod(head.getX() + dx(direction), columns);
+            int y = Math.floorMod(head.getY() + dy(direction), rows);
+            if (!game.isCellFree(x, y)) {
+                continue;
+            }
+            if (food != null && distance(x, y, food, columns, rows) < distance(head.getX(), head.getY(), food, columns, rows)) {
+                return direction;
+            }
+            if (fallback == null) {
+                fallback = direction;
+            }
+        }
+        return fallback;
+    }
+
+    private static int distance(int x, int y, Food food, int columns, int rows) {
+        int dx = Math.abs(x - food.getX());
+        int dy = Math.abs(y - food.getY());
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    private static int dx(Direction direction) {
+        return direction == Direction.LEFT ? -1 : direction == Direction.RIGHT ? 1 : 0;
+    }
+
+    private static int dy(Direction direction) {
+        return direction == Direction.UP ? -1 : direction == Direction.DOWN ? 1 : 0;
+    }
+}
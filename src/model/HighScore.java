@@ -18,6 +18,15 @@ public class HighScore implements Serializable {
         this.timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * Constructor for a score read back from a file
+     */
+    HighScore(String playerName, int score, long timestamp) {
+        this.playerName = playerName;
+        this.score = score;
+        this.timestamp = timestamp;
+    }
+
     public String getPlayerName() {
         return playerName;
     }
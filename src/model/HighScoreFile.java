@@ -0,0 +1,213 @@
+package model;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes high score lists in a compact binary format:
+ *
+ *   int   magic ("SNHS")
+ *   short version
+ *   int   number of records
+ *   per record: unsigned short name length, UTF-8 name bytes,
+ *               int score, long timestamp
+ *   int   CRC32 of everything before it
+ *
+ * The checksum is verified before any record is decoded. Files are written
+ * to a temporary file first and then renamed over the old one, so a crash
+ * while saving never leaves a half-written list.
+ * Files written by older versions with Java serialization can still be
+ * read, see readLegacy().
+ * The game itself keeps its scores in a HighScoreJournal, which converts
+ * files in this format (and serialized ones) when it first opens them.
+ */
+public class HighScoreFile {
+    static final int MAGIC = 0x534E4853;
+    static final short VERSION = 1;
+
+    // First bytes of a Java serialization stream
+    static final int SERIALIZATION_MAGIC = 0xACED;
+
+    // Sizes in bytes; a record's size excludes its name
+    private static final int HEADER_SIZE = 10;
+    private static final int RECORD_SIZE = 14;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private HighScoreFile() {
+    }
+
+    /**
+     * Write the scores to the given file, replacing it atomically
+     */
+    public static void write(Path file, List<HighScore> scores) throws IOException {
+        ByteBuffer data = encode(scores);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            // Make sure the data is on disk before it replaces the old file
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Encode the scores, including the checksum
+     * @return a buffer ready to be written out
+     */
+    static ByteBuffer encode(List<HighScore> scores) throws IOException {
+        // Room for short names; grown on demand
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + scores.size() * (RECORD_SIZE + 16) + CHECKSUM_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(scores.size());
+        for (HighScore score : scores) {
+            byte[] name = score.getPlayerName().getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES) {
+                throw new IOException("Player name too long: " + name.length + " bytes");
+            }
+            if (buffer.remaining() < RECORD_SIZE + name.length + CHECKSUM_SIZE) {
+                buffer = grow(buffer, RECORD_SIZE + name.length + CHECKSUM_SIZE);
+            }
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            buffer.putInt(score.getScore());
+            buffer.putLong(score.getTimestamp());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Read scores written by write()
+     * @throws IOException if the file is not in this format or is corrupt
+     */
+    public static List<HighScore> read(Path file) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Decode scores from a buffer holding a whole file
+     */
+    static List<HighScore> decode(ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        if (length < HEADER_SIZE + CHECKSUM_SIZE || data.getInt(data.position()) != MAGIC) {
+            throw new IOException("Not a high score file");
+        }
+
+        // Verify the whole file before trusting any of its contents
+        int checksumPosition = data.position() + length - CHECKSUM_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), data.arrayOffset() + data.position(), length - CHECKSUM_SIZE);
+        if (data.getInt(checksumPosition) != (int) crc.getValue()) {
+            throw new IOException("Corrupt high score file: checksum mismatch");
+        }
+
+        data.getInt();
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported high score file version " + version);
+        }
+        int count = data.getInt();
+        if (count < 0 || count > (length - HEADER_SIZE) / RECORD_SIZE) {
+            throw new IOException("Corrupt high score file: " + count + " records");
+        }
+
+        List<HighScore> scores = new ArrayList<>(count);
+        byte[] bytes = data.array();
+        try {
+            for (int i = 0; i < count; i++) {
+                int nameLength = data.getShort() & 0xFFFF;
+                if (nameLength > checksumPosition - data.position()) {
+                    throw new IOException("Corrupt high score file: truncated");
+                }
+                String name = new String(bytes, data.arrayOffset() + data.position(), nameLength,
+                        StandardCharsets.UTF_8);
+                data.position(data.position() + nameLength);
+                int score = data.getInt();
+                long timestamp = data.getLong();
+                scores.add(new HighScore(name, score, timestamp));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt high score file: truncated", e);
+        }
+        if (data.position() != checksumPosition) {
+            throw new IOException("Corrupt high score file: unexpected trailing data");
+        }
+        return scores;
+    }
+
+    /**
+     * Check if the file was written with Java serialization by an older version
+     */
+    public static boolean isLegacyFormat(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readUnsignedShort() == SERIALIZATION_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a list of scores written with Java serialization
+     */
+    public static List<HighScore> readLegacy(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            return decodeLegacy(in);
+        }
+    }
+
+    /**
+     * Decode a list of scores written with Java serialization
+     */
+    @SuppressWarnings("unchecked")
+    static List<HighScore> decodeLegacy(InputStream in) throws IOException {
+        try {
+            return new ArrayList<>((List<HighScore>) new ObjectInputStream(in).readObject());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unreadable legacy high score file", e);
+        }
+    }
+
+    /**
+     * Write a list of scores with Java serialization, as older versions did.
+     * Only kept for migration checks and benchmarks.
+     */
+    public static void writeLegacy(Path file, List<HighScore> scores) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            oos.writeObject(new ArrayList<>(scores));
+        }
+    }
+}
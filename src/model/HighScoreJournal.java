@@ -0,0 +1,390 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import metrics.HighScoreIoEvent;
+
+/**
+ * Append-only high score file that several processes can share, e.g. game
+ * cabinets using the same mount:
+ *
+ *   int   magic ("SNHJ")
+ *   short version
+ *   per record: int length of the following fields, int score,
+ *               long timestamp, UTF-8 name bytes, int CRC32 of the record
+ *               from its length on
+ *
+ * Writers append under an exclusive FileChannel lock, readers take a shared
+ * lock, so no process sees a half-written record and no append is lost.
+ * Each journal remembers how far it has read and only reads what other
+ * processes appended since (tailing); its own appends are skipped. Scores
+ * read are queued until drainReceived() hands them out.
+ * A record torn by a crash at the end of the file is cut off by the next
+ * append. A corrupt record with valid ones after it (e.g. a damaged block)
+ * is skipped up to the next valid record, so the scores after it are kept.
+ * A file in the older HighScoreFile or serialized formats is converted when
+ * opened, keeping the original as a .bak file.
+ */
+public class HighScoreJournal {
+    static final int MAGIC = 0x534E484A;
+    static final short VERSION = 1;
+
+    // Sizes in bytes; a record's size excludes its name
+    private static final int HEADER_SIZE = 6;
+    private static final int RECORD_SIZE = 20;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    private static final int MAX_RECORD_SIZE = RECORD_SIZE + MAX_NAME_BYTES;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // File locks belong to the whole JVM, so journals on the same file in
+    // one JVM must not hold them at the same time
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Object jvmLock;
+
+    // Position of the first record not read yet
+    private long readPosition;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    private final Queue<HighScore> received = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor
+     */
+    private HighScoreJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.jvmLock = JVM_LOCKS.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new Object());
+    }
+
+    /**
+     * Open the journal, creating or converting the file if needed
+     * @param readExisting false to skip the scores already in the file and
+     *                     only receive those appended from now on
+     */
+    public static HighScoreJournal open(Path file, boolean readExisting) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HighScoreJournal journal = new HighScoreJournal(file, channel);
+        try {
+            synchronized (journal.jvmLock) {
+                FileLock lock = channel.lock();
+                try {
+                    journal.prepare();
+                    journal.readPosition = HEADER_SIZE;
+                    if (!readExisting) {
+                        // Still walk the records, to find where a torn one may start
+                        journal.readRecords(channel.size(), false);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Write the header to a new file or convert a file in an older format.
+     * Called with the exclusive lock held.
+     */
+    private void prepare() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() == HEADER_SIZE && header.getInt(0) == MAGIC) {
+            short version = header.getShort(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported high score journal version " + version);
+            }
+            return;
+        }
+
+        // Anything shorter than a header is a journal torn while being created
+        List<HighScore> scores = null;
+        if (size >= HEADER_SIZE) {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Not a high score file: " + file);
+            }
+            ByteBuffer old = ByteBuffer.allocate((int) size);
+            while (old.hasRemaining() && channel.read(old, old.position()) >= 0) {
+                // Read the whole file
+            }
+            old.flip();
+            if (old.remaining() >= 2 && (old.getShort(0) & 0xFFFF) == HighScoreFile.SERIALIZATION_MAGIC) {
+                scores = HighScoreFile.decodeLegacy(new ByteArrayInputStream(old.array(), 0, old.limit()));
+            } else {
+                scores = HighScoreFile.decode(old.duplicate());
+            }
+            Files.write(file.resolveSibling(file.getFileName() + ".bak"), Arrays.copyOf(old.array(), old.limit()));
+        }
+
+        channel.truncate(0);
+        header.clear();
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        writeFully(header, 0);
+        if (scores != null) {
+            ByteBuffer records = encode(scores);
+            writeFully(records, HEADER_SIZE);
+        }
+        channel.force(true);
+    }
+
+    /**
+     * Append scores as one write, first reading what other processes
+     * appended since the last read
+     */
+    public synchronized void append(List<HighScore> scores) throws IOException {
+        HighScoreIoEvent event = new HighScoreIoEvent();
+        event.begin();
+        ByteBuffer records = encode(scores);
+        synchronized (jvmLock) {
+            FileLock lock = channel.lock();
+            try {
+                long size = channel.size();
+                readRecords(size, true);
+                if (readPosition < size) {
+                    // Only a torn record is left unread, e.g. from a crash
+                    channel.truncate(readPosition);
+                }
+                int length = records.remaining();
+                writeFully(records, readPosition);
+                channel.force(false);
+                readPosition += length;
+                event.bytes = length;
+            } finally {
+                lock.release();
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = HighScoreIoEvent.SAVE;
+            event.file = file.toString();
+            event.scores = scores.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Read the scores other processes appended since the last read
+     * @return the number of scores read
+     */
+    public synchronized int poll() throws IOException {
+        synchronized (jvmLock) {
+            long size = channel.size();
+            if (size <= readPosition) {
+                return 0;
+            }
+            HighScoreIoEvent event = new HighScoreIoEvent();
+            event.begin();
+            long start = readPosition;
+            int count;
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                count = readRecords(channel.size(), true);
+            } finally {
+                lock.release();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = HighScoreIoEvent.LOAD;
+                event.file = file.toString();
+                event.bytes = readPosition - start;
+                event.scores = count;
+                event.commit();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Hand out the scores read by poll() and append(), oldest first.
+     * May be called from any thread.
+     */
+    public void drainReceived(Consumer<HighScore> consumer) {
+        HighScore score;
+        while ((score = received.poll()) != null) {
+            consumer.accept(score);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read complete records from the read position up to the end, skipping
+     * corrupt records and stopping early at a torn one at the end.
+     * Called with a lock held.
+     * @param keep false to skip the scores instead of queueing them
+     * @return the number of scores read
+     */
+    private int readRecords(long end, boolean keep) throws IOException {
+        int count = 0;
+        while (readPosition < end) {
+            readChunk(readPosition, end);
+            int start = buffer.position();
+            count += decode(buffer, keep);
+            int consumed = buffer.position() - start;
+            readPosition += consumed;
+            if (consumed == 0) {
+                // A chunk always holds a whole record, so this one is torn
+                // or corrupt; it is torn if no valid record follows it
+                long next = findRecord(readPosition + 1, end);
+                if (next < 0) {
+                    break;
+                }
+                System.err.println("Error reading high scores: skipped " + (next - readPosition)
+                        + " corrupt bytes at offset " + readPosition + " of " + file);
+                readPosition = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the first valid record at or after a position. Called with a
+     * lock held.
+     * @return its position, or -1 if there is none before the end
+     */
+    private long findRecord(long position, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        while (end - position >= RECORD_SIZE) {
+            readChunk(position, end);
+            // Unless the chunk runs to the end, only look where a record of
+            // any length fits in it; the next chunk starts after that
+            int last = position + buffer.limit() < end ? buffer.limit() - MAX_RECORD_SIZE
+                    : buffer.limit() - RECORD_SIZE;
+            for (int offset = 0; offset <= last; offset++) {
+                if (recordSize(buffer, offset, crc) > 0) {
+                    return position + offset;
+                }
+            }
+            position += last + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Read up to a chunk of the file from a position into the buffer
+     */
+    private void readChunk(long position, long end) throws IOException {
+        int length = (int) Math.min(end - position, CHUNK_SIZE);
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+        }
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Fill the chunk
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Size of the complete, valid record starting at an index of the buffer
+     * @return the size in bytes, or -1 if the record is torn or corrupt
+     */
+    private static int recordSize(ByteBuffer data, int start, CRC32 crc) {
+        if (data.limit() - start < 4) {
+            return -1;
+        }
+        int length = data.getInt(start);
+        if (length < RECORD_SIZE - 8 || length > MAX_RECORD_SIZE - 8 || data.limit() - start < length + 8) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(data.array(), data.arrayOffset() + start, length + 4);
+        return data.getInt(start + 4 + length) == (int) crc.getValue() ? length + 8 : -1;
+    }
+
+    /**
+     * Decode complete, valid records from the buffer into the received queue
+     * @return the number of scores decoded; the buffer's position is left
+     *         after the last one
+     */
+    private int decode(ByteBuffer data, boolean keep) {
+        int count = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 4) {
+            int start = data.position();
+            int size = recordSize(data, start, crc);
+            if (size < 0) {
+                break;
+            }
+            int length = size - 8;
+
+            if (keep) {
+                int score = data.getInt(start + 4);
+                long timestamp = data.getLong(start + 8);
+                String name = new String(data.array(), data.arrayOffset() + start + 16, length - 12,
+                        StandardCharsets.UTF_8);
+                received.add(new HighScore(name, score, timestamp));
+            }
+            data.position(start + length + 8);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Encode scores as journal records
+     */
+    static ByteBuffer encode(List<HighScore> scores) throws IOException {
+        byte[][] names = new byte[scores.size()][];
+        int size = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = scores.get(i).getPlayerName().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > MAX_NAME_BYTES) {
+                throw new IOException("Player name too long: " + names[i].length + " bytes");
+            }
+            size += RECORD_SIZE + names[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < names.length; i++) {
+            int start = buffer.position();
+            buffer.putInt(RECORD_SIZE - 8 + names[i].length);
+            buffer.putInt(scores.get(i).getScore());
+            buffer.putLong(scores.get(i).getTimestamp());
+            buffer.put(names[i]);
+            crc.reset();
+            crc.update(buffer.array(), start, buffer.position() - start);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void writeFully(ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+}
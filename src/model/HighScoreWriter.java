@@ -0,0 +1,308 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import metrics.Metrics;
+
+/**
+ * Appends high scores to their journals on a background thread, so file
+ * I/O never runs on the EDT or the game loop. The same thread loads the
+ * journals at startup, tails them for scores appended by other processes,
+ * and saves the replays of high score games.
+ * Scores for the same journal that arrive while an earlier append is still
+ * queued are coalesced into one append (one lock and one sync to disk).
+ * Queued appends are flushed when the JVM shuts down.
+ */
+public class HighScoreWriter {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static HighScoreWriter defaultWriter;
+
+    private final ScheduledExecutorService executor;
+
+    // Scores waiting to be appended, per journal
+    private final Map<HighScoreJournal, PendingWrite> pending = new HashMap<>();
+
+    // Metrics, guarded by this
+    private long submitted;
+    private long coalesced;
+    private long written;
+    private long failed;
+    private long appends;
+    private long sumLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * A queued append: the scores to write and when the first of them was
+     * submitted
+     */
+    private static class PendingWrite {
+        final List<HighScore> scores = new ArrayList<>();
+        final long submittedNanos;
+
+        PendingWrite(long submittedNanos) {
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    public HighScoreWriter() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "High Score Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the writer shared by all games, which is flushed on shutdown
+     */
+    public static synchronized HighScoreWriter getDefault() {
+        if (defaultWriter == null) {
+            defaultWriter = new HighScoreWriter();
+            Runtime.getRuntime().addShutdownHook(new Thread(defaultWriter::close, "High Score Flush"));
+        }
+        return defaultWriter;
+    }
+
+    /**
+     * Queue a score to be appended to the journal
+     */
+    public void append(HighScoreJournal journal, HighScore score) {
+        boolean schedule;
+        synchronized (pending) {
+            PendingWrite queued = pending.get(journal);
+            schedule = queued == null;
+            if (schedule) {
+                queued = new PendingWrite(System.nanoTime());
+                pending.put(journal, queued);
+            }
+            queued.scores.add(score);
+        }
+        synchronized (this) {
+            submitted++;
+            if (!schedule) {
+                coalesced++;
+            }
+        }
+
+        if (schedule) {
+            try {
+                executor.execute(() -> writePending(journal));
+            } catch (RejectedExecutionException e) {
+                // Shut down already: write on the caller's thread
+                writePending(journal);
+            }
+        }
+    }
+
+    /**
+     * Save a replay to a file in the background, creating its directory
+     * if needed
+     */
+    public void saveReplay(Path file, Replay replay) {
+        Runnable save = () -> {
+            try {
+                Path directory = file.toAbsolutePath().getParent();
+                if (directory != null) {
+                    Files.createDirectories(directory);
+                }
+                long start = System.nanoTime();
+                replay.write(file);
+                Metrics.REPLAY_SAVE.recordSince(start);
+            } catch (IOException e) {
+                System.err.println("Error saving replay: " + e.getMessage());
+            }
+        };
+        try {
+            executor.execute(save);
+        } catch (RejectedExecutionException e) {
+            // Shut down already: write on the caller's thread
+            save.run();
+        }
+    }
+
+    /**
+     * Open a journal and read the scores already in it in the background
+     * @return completes with the journal, its scores waiting in
+     *         drainReceived(), or with the error if it could not be read
+     */
+    public CompletableFuture<HighScoreJournal> load(Path file) {
+        CompletableFuture<HighScoreJournal> result = new CompletableFuture<>();
+        Runnable load = () -> {
+            try {
+                HighScoreJournal journal = HighScoreJournal.open(file, true);
+                journal.poll();
+                result.complete(journal);
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        try {
+            executor.execute(load);
+        } catch (RejectedExecutionException e) {
+            // Shut down already: read on the caller's thread
+            load.run();
+        }
+        return result;
+    }
+
+    /**
+     * Read other processes' scores from the journal at a fixed interval
+     */
+    public void tail(HighScoreJournal journal, long intervalMillis) {
+        try {
+            executor.scheduleWithFixedDelay(() -> {
+                try {
+                    journal.poll();
+                } catch (IOException e) {
+                    System.err.println("Error reading high scores: " + e.getMessage());
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, nothing left to show the scores to
+        }
+    }
+
+    /**
+     * Append the scores queued for the journal
+     */
+    private void writePending(HighScoreJournal journal) {
+        PendingWrite write;
+        synchronized (pending) {
+            write = pending.remove(journal);
+        }
+        if (write == null) {
+            return;
+        }
+
+        boolean success = true;
+        try {
+            journal.append(write.scores);
+        } catch (IOException e) {
+            System.err.println("Error saving high scores: " + e.getMessage());
+            success = false;
+        }
+
+        long latency = System.nanoTime() - write.submittedNanos;
+        Metrics.HIGH_SCORE_SAVE.record(latency);
+        synchronized (this) {
+            if (success) {
+                written += write.scores.size();
+            } else {
+                failed += write.scores.size();
+            }
+            appends++;
+            sumLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        }
+    }
+
+    /**
+     * Wait until all scores queued so far are written
+     */
+    public void flush() {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (RejectedExecutionException e) {
+            // Shut down already; close() waited for the queue
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write all queued scores and stop the background thread, including
+     * tailing. Later scores are written on the caller's thread.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                System.err.println("High scores not saved: writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Metrics
+
+    /**
+     * Number of scores queued but not written yet
+     */
+    public int getPendingWrites() {
+        synchronized (pending) {
+            int count = 0;
+            for (PendingWrite write : pending.values()) {
+                count += write.scores.size();
+            }
+            return count;
+        }
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submitted;
+    }
+
+    /**
+     * Number of scores written
+     */
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Number of scores that could not be written
+     */
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Number of appends to a journal, each writing one or more scores
+     */
+    public synchronized long getAppendCount() {
+        return appends;
+    }
+
+    /**
+     * Number of scores that joined an append already queued
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * Mean time from queueing a score until it was on disk, in milliseconds
+     */
+    public synchronized double getMeanFlushLatencyMillis() {
+        return appends == 0 ? 0 : sumLatencyNanos / (double) appends / 1e6;
+    }
+
+    /**
+     * Longest time from queueing a score until it was on disk, in milliseconds
+     */
+    public synchronized double getMaxFlushLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("pending=%d submitted=%d written=%d failed=%d appends=%d coalesced=%d "
+                        + "flush latency mean=%.3fms max=%.3fms",
+                getPendingWrites(), submitted, written, failed, appends, coalesced,
+                getMeanFlushLatencyMillis(), getMaxFlushLatencyMillis());
+    }
+}
@@ -0,0 +1,60 @@
+package model;
+
+import java.util.List;
+
+/**
+ * All high scores ever submitted, ordered best first: higher scores rank
+ * higher, and of equal scores the earlier one ranks higher.
+ * Ranks start at 1.
+ */
+public interface Leaderboard {
+
+    /**
+     * Add a score
+     */
+    void add(HighScore score);
+
+    /**
+     * Number of scores
+     */
+    int size();
+
+    /**
+     * The best scores
+     * @param count maximum number of scores to return
+     */
+    List<HighScore> top(int count);
+
+    /**
+     * Rank a new score with the given value would get, i.e. one more than
+     * the number of scores that are higher or equal
+     */
+    int rankOf(int score);
+
+    /**
+     * Best score of the given player
+     * @return the score, or null if the player has none
+     */
+    HighScore getBest(String playerName);
+
+    /**
+     * Rank of the given player's best score
+     * @return the rank, or 0 if the player has no score
+     */
+    int rankOfPlayer(String playerName);
+
+    /**
+     * Scores ranked around the given player's best score
+     * @param radius number of scores to include above and below
+     * @return up to 2 * radius + 1 scores, best first; empty if the player
+     *         has no score
+     */
+    List<HighScore> around(String playerName, int radius);
+
+    /**
+     * All scores, best first. The list is an immutable snapshot: scores
+     * added later do not show up in it, so it can be handed to another
+     * thread.
+     */
+    List<HighScore> asList();
+}
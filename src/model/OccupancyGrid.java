@@ -0,0 +1,50 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Bitset with one bit per board cell, set while the snake occupies the cell.
+ * Kept in sync with the SnakeBuffer so collision and free-cell queries
+ * take constant time.
+ */
+class OccupancyGrid {
+    private final int columns;
+    private final long[] words;
+
+    /**
+     * Constructor
+     */
+    OccupancyGrid(int columns, int rows) {
+        this.columns = columns;
+        this.words = new long[(columns * rows + 63) >>> 6];
+    }
+
+    void set(int x, int y) {
+        int index = y * columns + x;
+        words[index >>> 6] |= 1L << index;
+    }
+
+    void clear(int x, int y) {
+        int index = y * columns + x;
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    boolean isOccupied(int x, int y) {
+        int index = y * columns + x;
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Check a cell by its index (y * columns + x)
+     */
+    boolean isOccupied(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Mark every cell as free
+     */
+    void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+}
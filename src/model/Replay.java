@@ -0,0 +1,583 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import model.SnakeGame.Direction;
+
+/**
+ * Recording of one game: the board size, the random seed and every turn
+ * the snake made, keyed by tick number. Resetting a game with the same
+ * seed and making the same turns at the same ticks reproduces it exactly,
+ * see ReplayPlayer.
+ *
+ * Food spawns on a random cell picked from the free cell set, so they
+ * depend on the order of that set. As a rule of the game, the set is
+ * brought into a canonical order (see FreeCellSet.rebuild()) every rebuild
+ * interval ticks, recorded or not; the interval depends only on the board
+ * size (see rebuildInterval()) and is stored in the header, so a replay
+ * plays back under the rule it was recorded with.
+ *
+ * At every rebuild the game also stores a keyframe with its full state
+ * (snake, food, score, speed and random generator), so a player can seek to
+ * any tick by restoring the keyframe before it and simulating at most one
+ * interval. A footer index locates the keyframes; files are read through a
+ * memory-mapped buffer, so opening a long replay does not copy it.
+ *
+ * File format (varints are unsigned LEB128):
+ *   int    magic ("SNRP")
+ *   byte   version
+ *   varint columns, rows
+ *   long   seed
+ *   varint number of ticks played, final score, number of turns,
+ *          rebuild interval (0 for none)
+ *   turns:     per turn: varint (ticks since the previous turn << 2 | direction)
+ *   keyframes: per keyframe: byte direction, varint score, varint speed,
+ *              long random state, varint food cell + 1 (0 for none),
+ *              varint snake length, varint head cell, then 2 bits per
+ *              segment for the step to the next one towards the tail
+ *   index:     per keyframe: long tick, long tick of the last turn before
+ *              it, int turns before it, int offset into the turns,
+ *              int offset into the keyframes
+ *   footer:    long offset of the keyframes, long offset of the index,
+ *              int number of keyframes, int magic ("SNRI")
+ * Cells are numbered y * columns + x. Version 1 files end after the turns
+ * and were recorded without rebuilds.
+ */
+public class Replay {
+    static final int MAGIC = 0x534E5250;
+    static final int FOOTER_MAGIC = 0x534E5249;
+    static final byte VERSION = 2;
+
+    // The free cell set is rebuilt at least this many ticks apart, more on
+    // large boards so rebuilding costs at most 8 cells per tick
+    private static final int MIN_REBUILD_INTERVAL = 1000;
+    private static final int CELLS_PER_REBUILD_TICK = 8;
+
+    private static final int INDEX_ENTRY_SIZE = 28;
+    private static final int FOOTER_SIZE = 24;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int columns;
+    private final int rows;
+    private final long seed;
+    private final long ticks;
+    private final int score;
+    private final int turnCount;
+    private final int rebuildInterval;
+    private final int keyframeCount;
+
+    // Encoded turns, keyframes and keyframe index; only read with absolute gets
+    private final ByteBuffer turns;
+    private final ByteBuffer keyframes;
+    private final ByteBuffer index;
+
+    /**
+     * Constructor
+     */
+    Replay(int columns, int rows, long seed, long ticks, int score, int turnCount, int rebuildInterval,
+           ByteBuffer turns, ByteBuffer keyframes, ByteBuffer index) {
+        this.columns = columns;
+        this.rows = rows;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.score = score;
+        this.turnCount = turnCount;
+        this.rebuildInterval = rebuildInterval;
+        this.keyframeCount = index.limit() / INDEX_ENTRY_SIZE;
+        this.turns = turns;
+        this.keyframes = keyframes;
+        this.index = index;
+    }
+
+    /**
+     * Number of ticks between free cell rebuilds (and keyframes) on a board
+     * of the given size: max(1000, columns * rows / 8)
+     */
+    static int rebuildInterval(int columns, int rows) {
+        return (int) Math.max(MIN_REBUILD_INTERVAL, (long) columns * rows / CELLS_PER_REBUILD_TICK);
+    }
+
+    /**
+     * Builds the turn log and keyframes while a game is played
+     */
+    static class Recorder {
+        private byte[] turns = new byte[64];
+        private int size;
+        private int turnCount;
+        private long lastTurnTick;
+        private ByteBuffer keyframes = ByteBuffer.allocate(256);
+        private ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 16);
+
+        void clear() {
+            size = 0;
+            turnCount = 0;
+            lastTurnTick = 0;
+            keyframes.clear();
+            index.clear();
+        }
+
+        /**
+         * Record a turn made at the given tick; ticks must not decrease
+         */
+        void recordTurn(long tick, Direction direction) {
+            if (turns.length - size < 10) {
+                turns = Arrays.copyOf(turns, turns.length * 2);
+            }
+            size = writeVarint(turns, size, (tick - lastTurnTick) << 2 | direction.ordinal());
+            lastTurnTick = tick;
+            turnCount++;
+        }
+
+        /**
+         * Record the full game state after the given tick; the snake's
+         * consecutive cells must be neighbours (through the walls)
+         */
+        void recordKeyframe(long tick, int columns, int rows, SnakeBuffer snake, Direction direction, Food food,
+                            int score, int speed, long randomState) {
+            int length = snake.length();
+            keyframes = ensureCapacity(keyframes, 1 + 5 + 5 + 8 + 5 + 5 + 5 + (length + 2) / 4);
+            int start = keyframes.position();
+            keyframes.put((byte) direction.ordinal());
+            writeVarint(keyframes, score);
+            writeVarint(keyframes, speed);
+            keyframes.putLong(randomState);
+            writeVarint(keyframes, food == null ? 0 : food.getY() * columns + food.getX() + 1);
+            writeVarint(keyframes, length);
+            writeVarint(keyframes, snake.getY(0) * columns + snake.getX(0));
+
+            // Each segment is one step away from the one before it
+            int bits = 0;
+            int count = 0;
+            for (int i = 1; i < length; i++) {
+                bits |= step(snake.getX(i - 1), snake.getY(i - 1), snake.getX(i), snake.getY(i), columns, rows)
+                        << (2 * count);
+                if (++count == 4) {
+                    keyframes.put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                keyframes.put((byte) bits);
+            }
+
+            index = ensureCapacity(index, INDEX_ENTRY_SIZE);
+            index.putLong(tick).putLong(lastTurnTick).putInt(turnCount).putInt(size).putInt(start);
+        }
+
+        Replay toReplay(int columns, int rows, long seed, long ticks, int score, int rebuildInterval) {
+            return new Replay(columns, rows, seed, ticks, score, turnCount, rebuildInterval,
+                    ByteBuffer.wrap(Arrays.copyOf(turns, size)), copy(keyframes), copy(index));
+        }
+
+        private static ByteBuffer ensureCapacity(ByteBuffer buffer, int needed) {
+            if (buffer.remaining() >= needed) {
+                return buffer;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+            buffer.flip();
+            return grown.put(buffer);
+        }
+
+        private static ByteBuffer copy(ByteBuffer buffer) {
+            return ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.position()));
+        }
+    }
+
+    /**
+     * Iterates over the turns of a replay
+     */
+    class TurnReader {
+        private int position;
+        private int remaining;
+        private long tick;
+        private Direction direction;
+
+        TurnReader(int position, int remaining, long tick) {
+            this.position = position;
+            this.remaining = remaining;
+            this.tick = tick;
+        }
+
+        /**
+         * Move to the next turn
+         * @return false if there are no more turns
+         */
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = turns.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            tick += value >>> 2;
+            direction = DIRECTIONS[(int) value & 3];
+            remaining--;
+            return true;
+        }
+
+        long tick() {
+            return tick;
+        }
+
+        Direction direction() {
+            return direction;
+        }
+    }
+
+    /**
+     * Read the turns from the start
+     */
+    TurnReader turns() {
+        return new TurnReader(0, turnCount, 0);
+    }
+
+    /**
+     * Read the turns made from the given keyframe on
+     */
+    TurnReader turns(int keyframe) {
+        int entry = keyframe * INDEX_ENTRY_SIZE;
+        return new TurnReader(index.getInt(entry + 20), turnCount - index.getInt(entry + 16),
+                index.getLong(entry + 8));
+    }
+
+    // Keyframes
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    /**
+     * Tick after which the given keyframe was taken
+     */
+    public long getKeyframeTick(int keyframe) {
+        return index.getLong(keyframe * INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Find the last keyframe taken at or before the given tick
+     * @return the keyframe, or -1 if there is none
+     */
+    public int findKeyframe(long tick) {
+        int low = 0;
+        int high = keyframeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getKeyframeTick(middle) <= tick) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Put the game into the state of the given keyframe
+     * @throws IllegalArgumentException if the keyframe is corrupt; the game
+     *         is left unchanged
+     */
+    void restoreKeyframe(int keyframe, SnakeGame game) {
+        long[] cursor = {index.getInt(keyframe * INDEX_ENTRY_SIZE + 24)};
+        long cellCount = (long) columns * rows;
+
+        // Decode and check everything before touching the game
+        int direction = keyframes.get((int) cursor[0]++);
+        int score = (int) readVarint(keyframes, cursor);
+        int speed = (int) readVarint(keyframes, cursor);
+        long randomState = keyframes.getLong((int) cursor[0]);
+        cursor[0] += 8;
+        long food = readVarint(keyframes, cursor) - 1;
+        long length = readVarint(keyframes, cursor);
+        long head = readVarint(keyframes, cursor);
+        if (direction < 0 || direction >= DIRECTIONS.length || food >= cellCount
+                || length < 1 || length > cellCount || head >= cellCount) {
+            throw new IllegalArgumentException("Corrupt replay keyframe " + keyframe);
+        }
+
+        int[] cells = new int[(int) length];
+        int x = (int) (head % columns);
+        int y = (int) (head / columns);
+        cells[0] = SnakeBuffer.pack(x, y);
+        int bits = 0;
+        for (int i = 1; i < cells.length; i++) {
+            int shift = 2 * ((i - 1) & 3);
+            if (shift == 0) {
+                bits = keyframes.get((int) cursor[0]++);
+            }
+            switch (DIRECTIONS[(bits >>> shift) & 3]) {
+                case UP:
+                    y = y == 0 ? rows - 1 : y - 1;
+                    break;
+                case DOWN:
+                    y = y == rows - 1 ? 0 : y + 1;
+                    break;
+                case LEFT:
+                    x = x == 0 ? columns - 1 : x - 1;
+                    break;
+                case RIGHT:
+                    x = x == columns - 1 ? 0 : x + 1;
+                    break;
+            }
+            cells[i] = SnakeBuffer.pack(x, y);
+        }
+
+        game.restoreKeyframe(getKeyframeTick(keyframe), cells, DIRECTIONS[direction], (int) food,
+                score, speed, randomState);
+    }
+
+    /**
+     * Direction of the step from a cell to its neighbour
+     */
+    private static int step(int x, int y, int nextX, int nextY, int columns, int rows) {
+        if (nextX == x) {
+            return (nextY == (y + rows - 1) % rows ? Direction.UP : Direction.DOWN).ordinal();
+        }
+        return (nextX == (x + columns - 1) % columns ? Direction.LEFT : Direction.RIGHT).ordinal();
+    }
+
+    // File format
+
+    /**
+     * Write the replay to a file
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 + 1 + 5 * 2 + 8 + 10 + 5 * 3);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        writeVarint(header, columns);
+        writeVarint(header, rows);
+        header.putLong(seed);
+        writeVarint(header, ticks);
+        writeVarint(header, score);
+        writeVarint(header, turnCount);
+        writeVarint(header, rebuildInterval);
+        header.flip();
+
+        long keyframesOffset = header.remaining() + (long) turns.limit();
+        long indexOffset = keyframesOffset + keyframes.limit();
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        footer.putLong(keyframesOffset).putLong(indexOffset).putInt(keyframeCount).putInt(FOOTER_MAGIC).flip();
+
+        ByteBuffer[] sections = {header, turns.duplicate(), keyframes.duplicate(), index.duplicate(), footer};
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (ByteBuffer section : sections) {
+                section.rewind();
+                while (section.hasRemaining()) {
+                    channel.write(section);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a replay written by write(), mapping the file into memory
+     */
+    public static Replay read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Replay file too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            byte version = buffer.get();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            int columns = (int) readVarint(buffer);
+            int rows = (int) readVarint(buffer);
+            long seed = buffer.getLong();
+            long ticks = readVarint(buffer);
+            int score = (int) readVarint(buffer);
+            int turnCount = (int) readVarint(buffer);
+            int rebuildInterval = version == 1 ? 0 : (int) readVarint(buffer);
+            if (columns <= 0 || rows <= 0 || (long) columns * rows > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt replay file: " + file);
+            }
+
+            // Version 1 files have no keyframes
+            int turnsOffset = buffer.position();
+            int keyframesOffset = buffer.limit();
+            int indexOffset = buffer.limit();
+            int keyframeCount = 0;
+            if (version != 1) {
+                int footer = buffer.limit() - FOOTER_SIZE;
+                long keyframes = buffer.getLong(footer);
+                long index = buffer.getLong(footer + 8);
+                keyframeCount = buffer.getInt(footer + 16);
+                if (buffer.getInt(footer + 20) != FOOTER_MAGIC || keyframes < turnsOffset || index < keyframes
+                        || keyframeCount < 0 || index + (long) keyframeCount * INDEX_ENTRY_SIZE != footer) {
+                    throw new IOException("Corrupt replay file: " + file);
+                }
+                keyframesOffset = (int) keyframes;
+                indexOffset = (int) index;
+            }
+
+            Replay replay = new Replay(columns, rows, seed, ticks, score, turnCount, rebuildInterval,
+                    slice(buffer, turnsOffset, keyframesOffset),
+                    slice(buffer, keyframesOffset, indexOffset),
+                    slice(buffer, indexOffset, indexOffset + keyframeCount * INDEX_ENTRY_SIZE));
+            if (!replay.isConsistent()) {
+                throw new IOException("Corrupt replay file: " + file);
+            }
+            return replay;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt replay file: " + file, e);
+        }
+    }
+
+    /**
+     * Check that the turn log holds exactly the given number of turns and
+     * that the index points into the turns and keyframes in order
+     */
+    private boolean isConsistent() {
+        int varints = 0;
+        int limit = turns.limit();
+        for (int i = 0; i < limit; i++) {
+            if (turns.get(i) >= 0) {
+                varints++;
+            }
+        }
+        if (varints != turnCount || (limit > 0 && turns.get(limit - 1) < 0)) {
+            return false;
+        }
+
+        long previousTick = 0;
+        int previousTurns = 0;
+        int previousOffset = -1;
+        for (int i = 0; i < keyframeCount; i++) {
+            int entry = i * INDEX_ENTRY_SIZE;
+            long tick = index.getLong(entry);
+            int turnsBefore = index.getInt(entry + 16);
+            int turnOffset = index.getInt(entry + 20);
+            int keyframeOffset = index.getInt(entry + 24);
+            if (tick <= previousTick || tick > ticks || index.getLong(entry + 8) > tick
+                    || turnsBefore < previousTurns || turnsBefore > turnCount
+                    || turnOffset < 0 || turnOffset > limit
+                    || keyframeOffset <= previousOffset || keyframeOffset >= keyframes.limit()) {
+                return false;
+            }
+            previousTick = tick;
+            previousTurns = turnsBefore;
+            previousOffset = keyframeOffset;
+        }
+        return true;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(to).position(from);
+        return slice.slice();
+    }
+
+    private static int writeVarint(byte[] data, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long[] cursor = {buffer.position()};
+        long value = readVarint(buffer, cursor);
+        buffer.position((int) cursor[0]);
+        return value;
+    }
+
+    /**
+     * Read a varint at the cursor's position and advance the cursor
+     */
+    private static long readVarint(ByteBuffer buffer, long[] cursor) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get((int) cursor[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // Getters
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Number of ticks the recorded game ran for
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Final score of the recorded game
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * Number of ticks between free cell rebuilds and keyframes, 0 if the
+     * game was recorded without them
+     */
+    public int getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    /**
+     * Size of the encoded turns in bytes
+     */
+    public int getTurnBytes() {
+        return turns.limit();
+    }
+
+    /**
+     * Size of the encoded keyframes in bytes
+     */
+    public int getKeyframeBytes() {
+        return keyframes.limit();
+    }
+}
@@ -0,0 +1,233 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Plays a replay back headlessly, as fast as the game can be stepped, e.g.
+ * to check that it still leads to the recorded score before accepting a
+ * high score or after changing the game logic, or tick by tick in a viewer.
+ * Seeking restores the last keyframe before the target tick, so it
+ * simulates at most one keyframe interval (or just steps forward when the
+ * target is a little ahead).
+ *
+ * Usage: java -cp out model.ReplayPlayer replay-file...
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private final GameEngine engine;
+    private final SnakeGame game;
+
+    // Next recorded turn to make
+    private Replay.TurnReader turns;
+    private boolean hasTurn;
+
+    // Cleared when the game rejects a recorded turn
+    private boolean turnsApplied;
+
+    /**
+     * Outcome of playing a replay back
+     */
+    public static class Result {
+        private final int score;
+        private final long ticks;
+        private final boolean gameOver;
+        private final boolean turnsApplied;
+        private final long elapsedNanos;
+        private final Replay replay;
+
+        Result(Replay replay, int score, long ticks, boolean gameOver, boolean turnsApplied, long elapsedNanos) {
+            this.replay = replay;
+            this.score = score;
+            this.ticks = ticks;
+            this.gameOver = gameOver;
+            this.turnsApplied = turnsApplied;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Check if the playback reproduced the recorded game: every turn
+         * was valid and it ended after the same ticks with the same score
+         */
+        public boolean isVerified() {
+            return turnsApplied && score == replay.getScore() && ticks == replay.getTicks();
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getTicks() {
+            return ticks;
+        }
+
+        /**
+         * Check if the played back game ended (died or won)
+         */
+        public boolean isGameOver() {
+            return gameOver;
+        }
+
+        /**
+         * Ticks played back per second
+         */
+        public double getTicksPerSecond() {
+            return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: score=%d (recorded %d) ticks=%d (recorded %d) %.0f ticks/s",
+                    isVerified() ? "OK" : "MISMATCH", score, replay.getScore(), ticks, replay.getTicks(),
+                    getTicksPerSecond());
+        }
+    }
+
+    /**
+     * Constructor for a headless player
+     */
+    public ReplayPlayer(Replay replay) {
+        this(replay, 1);
+    }
+
+    /**
+     * Constructor for a player whose game has the given cell size, e.g. to
+     * show it in the GamePanel
+     */
+    public ReplayPlayer(Replay replay, int cellSize) {
+        this(new GameEngine(new SnakeGame(replay.getColumns() * cellSize, replay.getRows() * cellSize,
+                cellSize, false)), replay);
+    }
+
+    /**
+     * Constructor reusing the engine's game, which must have the replay's
+     * board size
+     */
+    ReplayPlayer(GameEngine engine, Replay replay) {
+        this.replay = replay;
+        this.engine = engine;
+        this.game = engine.getGame();
+        game.setReplayRecording(false);
+        game.setRebuildInterval(replay.getRebuildInterval());
+        rewind();
+    }
+
+    /**
+     * Go back to the start of the replay
+     */
+    public void rewind() {
+        engine.reset(replay.getSeed());
+        turns = replay.turns();
+        hasTurn = turns.next();
+        turnsApplied = true;
+    }
+
+    /**
+     * Play one tick, making the turn recorded for it
+     * @return the outcome; IDLE at the end of the replay
+     */
+    public GameEngine.StepResult step() {
+        long tick = game.getTicks();
+        if (tick >= replay.getTicks()) {
+            return GameEngine.StepResult.IDLE;
+        }
+        if (hasTurn && turns.tick() == tick) {
+            // A turn the game rejects means the playback has diverged
+            turnsApplied &= game.changeDirection(turns.direction());
+            hasTurn = turns.next();
+        }
+        return engine.step();
+    }
+
+    /**
+     * Move to the given tick, clamped to the length of the replay
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, replay.getTicks()));
+        long current = game.getTicks();
+        int keyframe = replay.findKeyframe(tick);
+        long keyframeTick = keyframe < 0 ? 0 : replay.getKeyframeTick(keyframe);
+
+        // Step forward from here unless the keyframe is closer
+        if (current > tick || current < keyframeTick || game.isGameOver()) {
+            if (keyframe < 0) {
+                rewind();
+            } else {
+                replay.restoreKeyframe(keyframe, game);
+                turns = replay.turns(keyframe);
+                hasTurn = turns.next();
+            }
+        }
+        while (game.getTicks() < tick && step() != GameEngine.StepResult.IDLE) {
+            // Simulate up to the target
+        }
+    }
+
+    /**
+     * Check if the whole replay has been played
+     */
+    public boolean isFinished() {
+        return game.getTicks() >= replay.getTicks() || game.isGameOver();
+    }
+
+    /**
+     * Get the current tick
+     */
+    public long getTick() {
+        return game.getTicks();
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Get the game the replay is played on
+     */
+    public SnakeGame getGame() {
+        return game;
+    }
+
+    /**
+     * Play the replay back from the start on a new headless game
+     */
+    public static Result play(Replay replay) {
+        return new ReplayPlayer(replay).playToEnd();
+    }
+
+    /**
+     * Play the replay back from the start on the engine's game, which must
+     * have the replay's board size; lets callers reuse one game for many
+     * replays
+     */
+    static Result play(GameEngine engine, Replay replay) {
+        return new ReplayPlayer(engine, replay).playToEnd();
+    }
+
+    private Result playToEnd() {
+        long start = System.nanoTime();
+        while (step() != GameEngine.StepResult.IDLE) {
+            // Play until the end of the replay or the game
+        }
+        return new Result(replay, game.getScore(), game.getTicks(), game.isGameOver(), turnsApplied && !hasTurn,
+                System.nanoTime() - start);
+    }
+
+    public static void main(String[] args) {
+        boolean failed = false;
+        for (String file : args) {
+            try {
+                Result result = play(Replay.read(Paths.get(file)));
+                System.out.println(file + ": " + result);
+                failed |= !result.isVerified();
+            } catch (IOException e) {
+                System.err.println("Error reading replay: " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
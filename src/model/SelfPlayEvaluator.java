@@ -0,0 +1,411 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Plays a batch of games with a strategy headlessly, on all cores, and
+ * reports the distribution of scores and game lengths, e.g. to tune bots.
+ *
+ * Game i of a batch is seeded with seed(baseSeed, i), so every game is
+ * reproducible on its own (e.g. to record a replay of an outlier): workers
+ * only turn replay recording off, which does not change how a game plays,
+ * and keep every other rule of a normal game. The games
+ * are split into ranges on a fork/join pool. Each worker thread reuses its
+ * own game and strategy, and resetting the game fully restores its state,
+ * so a game's outcome does not depend on which worker plays it or on what
+ * that worker played before. Workers only count outcomes in integer
+ * histograms, which are summed at the end, so the results are identical
+ * for any number of threads.
+ *
+ * Usage: java -cp out model.SelfPlayEvaluator [strategy class] [games] [base seed] [threads] [--check]
+ * (--check plays the batch again on one thread and compares the results)
+ */
+public class SelfPlayEvaluator {
+    private static final int LEAF_GAMES = 16; // games played by one task without splitting
+    private static final long DEFAULT_MAX_TICKS = 1_000_000;
+
+    private final int columns;
+    private final int rows;
+    private final long maxTicks;
+
+    /**
+     * Outcome of a batch of games
+     */
+    public static class Result {
+        private final int columns;
+        private final int rows;
+        private final int games;
+        private final int parallelism;
+        private final long wins;
+        private final long timeouts;
+        private final long[] scores;
+        private final long[] ticks;
+        private final long totalScore;
+        private final long totalTicks;
+        private final long elapsedNanos;
+
+        Result(int columns, int rows, int games, int parallelism, Counts counts, long elapsedNanos) {
+            this.columns = columns;
+            this.rows = rows;
+            this.games = games;
+            this.parallelism = parallelism;
+            this.wins = counts.wins;
+            this.timeouts = counts.timeouts;
+            this.scores = Arrays.copyOf(counts.scores, counts.maxScore + 1);
+            this.ticks = Arrays.copyOf(counts.ticks, (int) counts.maxTicks + 1);
+            this.totalScore = counts.totalScore;
+            this.totalTicks = counts.totalTicks;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Number of games in which the snake filled the board
+         */
+        public long getWins() {
+            return wins;
+        }
+
+        /**
+         * Number of games stopped at the tick limit
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public double getMeanScore() {
+            return games == 0 ? 0 : totalScore / (double) games;
+        }
+
+        public int getMinScore() {
+            return (int) percentile(scores, games, 0);
+        }
+
+        public int getMaxScore() {
+            return scores.length - 1;
+        }
+
+        /**
+         * Score that the given fraction (0 to 1) of the games did not exceed
+         */
+        public int getScorePercentile(double fraction) {
+            return (int) percentile(scores, games, fraction);
+        }
+
+        /**
+         * Number of games that ended with the given score
+         */
+        public long getScoreCount(int score) {
+            return score >= 0 && score < scores.length ? scores[score] : 0;
+        }
+
+        public double getMeanTicks() {
+            return games == 0 ? 0 : totalTicks / (double) games;
+        }
+
+        public long getMinTicks() {
+            return percentile(ticks, games, 0);
+        }
+
+        public long getMaxTicks() {
+            return ticks.length - 1;
+        }
+
+        /**
+         * Game length in ticks that the given fraction (0 to 1) of the games
+         * did not exceed
+         */
+        public long getTicksPercentile(double fraction) {
+            return percentile(ticks, games, fraction);
+        }
+
+        public long getTotalTicks() {
+            return totalTicks;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        public double getTicksPerSecond() {
+            return elapsedNanos == 0 ? 0 : totalTicks * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Check if another batch had exactly the same outcomes, ignoring
+         * the timing and number of threads
+         */
+        public boolean hasSameOutcomes(Result other) {
+            return columns == other.columns && rows == other.rows && games == other.games
+                    && wins == other.wins && timeouts == other.timeouts
+                    && totalScore == other.totalScore && totalTicks == other.totalTicks
+                    && Arrays.equals(scores, other.scores) && Arrays.equals(ticks, other.ticks);
+        }
+
+        /**
+         * Value below which the given fraction of the counted values lie
+         * (nearest rank)
+         */
+        private static long percentile(long[] histogram, long count, double fraction) {
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int value = 0; value < histogram.length; value++) {
+                seen += histogram[value];
+                if (seen >= rank) {
+                    return value;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d games on %dx%d, %d threads: %.1f games/s, %.0f ticks/s%n"
+                            + "score: mean=%.1f min=%d p50=%d p90=%d p99=%d max=%d%n"
+                            + "ticks: mean=%.1f min=%d p50=%d p90=%d p99=%d max=%d%n"
+                            + "won=%d timed out=%d",
+                    games, columns, rows, parallelism, getGamesPerSecond(), getTicksPerSecond(),
+                    getMeanScore(), getMinScore(), getScorePercentile(0.5), getScorePercentile(0.9),
+                    getScorePercentile(0.99), getMaxScore(),
+                    getMeanTicks(), getMinTicks(), getTicksPercentile(0.5), getTicksPercentile(0.9),
+                    getTicksPercentile(0.99), getMaxTicks(),
+                    wins, timeouts);
+        }
+    }
+
+    /**
+     * Constructor
+     * @param maxTicks games still running after this many ticks are
+     *                 stopped and counted as timed out
+     */
+    public SelfPlayEvaluator(int columns, int rows, long maxTicks) {
+        if (maxTicks < 1 || maxTicks >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid tick limit: " + maxTicks);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Constructor with the default tick limit of 1M ticks
+     */
+    public SelfPlayEvaluator(int columns, int rows) {
+        this(columns, rows, DEFAULT_MAX_TICKS);
+    }
+
+    /**
+     * Seed of the given game of a batch; mixes the bits so that games with
+     * neighbouring numbers get unrelated food positions
+     */
+    public static long seed(long baseSeed, int game) {
+        long z = baseSeed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Play a batch of games on all cores
+     * @param strategies creates the strategy of each worker thread
+     */
+    public Result evaluate(Supplier<? extends Strategy> strategies, int games, long baseSeed) {
+        return evaluate(strategies, games, baseSeed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Play a batch of games on the given number of threads
+     * @param strategies creates the strategy of each worker thread
+     */
+    public Result evaluate(Supplier<? extends Strategy> strategies, int games, long baseSeed, int parallelism) {
+        Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+            Worker created = new Worker(strategies.get());
+            workers.add(created);
+            return created;
+        });
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new PlayTask(worker, baseSeed, 0, games));
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Integer sums do not depend on which worker played which game
+        Counts total = new Counts();
+        for (Worker done : workers) {
+            total.add(done.counts);
+        }
+        return new Result(columns, rows, games, parallelism, total, elapsed);
+    }
+
+    /**
+     * Outcomes counted by one worker
+     */
+    private static class Counts {
+        long wins;
+        long timeouts;
+        long totalScore;
+        long totalTicks;
+        long[] scores = new long[64];
+        long[] ticks = new long[1024];
+        int maxScore;
+        long maxTicks;
+
+        void add(int score, long gameTicks, boolean won, boolean timedOut) {
+            if (score >= scores.length) {
+                scores = Arrays.copyOf(scores, Math.max(score + 1, scores.length * 2));
+            }
+            if (gameTicks >= ticks.length) {
+                ticks = Arrays.copyOf(ticks, (int) Math.max(gameTicks + 1, ticks.length * 2L));
+            }
+            scores[score]++;
+            ticks[(int) gameTicks]++;
+            maxScore = Math.max(maxScore, score);
+            maxTicks = Math.max(maxTicks, gameTicks);
+            totalScore += score;
+            totalTicks += gameTicks;
+            if (won) {
+                wins++;
+            }
+            if (timedOut) {
+                timeouts++;
+            }
+        }
+
+        void add(Counts other) {
+            scores = Arrays.copyOf(scores, Math.max(scores.length, other.maxScore + 1));
+            ticks = Arrays.copyOf(ticks, (int) Math.max(ticks.length, other.maxTicks + 1));
+            for (int i = 0; i <= other.maxScore; i++) {
+                scores[i] += other.scores[i];
+            }
+            for (int i = 0; i <= other.maxTicks; i++) {
+                ticks[i] += other.ticks[i];
+            }
+            maxScore = Math.max(maxScore, other.maxScore);
+            maxTicks = Math.max(maxTicks, other.maxTicks);
+            totalScore += other.totalScore;
+            totalTicks += other.totalTicks;
+            wins += other.wins;
+            timeouts += other.timeouts;
+        }
+    }
+
+    /**
+     * Game, strategy and counts of one worker thread
+     */
+    private class Worker {
+        private final GameEngine engine = new GameEngine(columns, rows);
+        private final Strategy strategy;
+        private final Counts counts = new Counts();
+
+        Worker(Strategy strategy) {
+            this.strategy = strategy;
+            engine.getGame().setReplayRecording(false);
+        }
+
+        void play(long seed) {
+            SnakeGame game = engine.getGame();
+            engine.reset(seed);
+            strategy.reset(game);
+            GameEngine.StepResult result = GameEngine.StepResult.MOVED;
+            while (game.getTicks() < maxTicks) {
+                result = engine.step(strategy.nextDirection(game));
+                if (result == GameEngine.StepResult.DIED || result == GameEngine.StepResult.WON
+                        || result == GameEngine.StepResult.IDLE) {
+                    break;
+                }
+            }
+            counts.add(game.getScore(), game.getTicks(), game.isWon(), !game.isGameOver());
+        }
+    }
+
+    /**
+     * Plays a range of games, splitting it so other workers can steal half
+     * of it
+     */
+    private class PlayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ThreadLocal<Worker> worker;
+        private final long baseSeed;
+        private final int from;
+        private final int to;
+
+        PlayTask(ThreadLocal<Worker> worker, long baseSeed, int from, int to) {
+            this.worker = worker;
+            this.baseSeed = baseSeed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_GAMES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlayTask(worker, baseSeed, from, middle), new PlayTask(worker, baseSeed, middle, to));
+                return;
+            }
+            Worker current = worker.get();
+            for (int game = from; game < to; game++) {
+                current.play(seed(baseSeed, game));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean check = Arrays.asList(args).contains("--check");
+        String[] values = Arrays.stream(args).filter(arg -> !arg.equals("--check")).toArray(String[]::new);
+        String strategyClass = values.length > 0 ? values[0] : GreedyStrategy.class.getName();
+        int games = values.length > 1 ? Integer.parseInt(values[1]) : 100_000;
+        long baseSeed = values.length > 2 ? Long.parseLong(values[2]) : 42;
+        int threads = values.length > 3 ? Integer.parseInt(values[3]) : Runtime.getRuntime().availableProcessors();
+
+        Supplier<Strategy> strategies;
+        try {
+            Class<? extends Strategy> type = Class.forName(strategyClass).asSubclass(Strategy.class);
+            type.getDeclaredConstructor().newInstance();
+            strategies = () -> {
+                try {
+                    return type.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            System.err.println("Error creating strategy: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        SelfPlayEvaluator evaluator = new SelfPlayEvaluator(30, 25);
+        Result result = evaluator.evaluate(strategies, games, baseSeed, threads);
+        System.out.println(strategyClass + ": " + result);
+        if (check) {
+            Result single = evaluator.evaluate(strategies, games, baseSeed, 1);
+            boolean same = result.hasSameOutcomes(single);
+            System.out.println("1 thread: " + (same ? "same outcomes" : "DIFFERENT outcomes") + ", "
+                    + String.format(Locale.ROOT, "%.1f games/s", single.getGamesPerSecond()));
+            if (!same) {
+                System.exit(1);
+            }
+        }
+    }
+}
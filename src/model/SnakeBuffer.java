@@ -0,0 +1,148 @@
+package model;
+
+/**
+ * Circular buffer holding the cells of the snake as packed int coordinates.
+ * Index 0 is the head and index length() - 1 is the tail, so moving the
+ * snake is a push at the head and a pop at the tail.
+ * Outside the model package the buffer is a read-only view.
+ */
+public class SnakeBuffer {
+    private static final int MIN_CAPACITY = 16;
+
+    // Packed cells, capacity is always a power of two
+    private int[] cells;
+    private int mask;
+
+    // Array position of the head and number of cells in use
+    private int first;
+    private int length;
+
+    // Pushes and pops since the last clear, used to sync copies incrementally
+    private long pushCount;
+    private long popCount;
+    private int generation;
+
+    /**
+     * Constructor
+     */
+    SnakeBuffer() {
+        cells = new int[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    /**
+     * Pack a cell coordinate into a single int
+     */
+    static int pack(int x, int y) {
+        return (x << 16) | y;
+    }
+
+    static int unpackX(int cell) {
+        return cell >>> 16;
+    }
+
+    static int unpackY(int cell) {
+        return cell & 0xFFFF;
+    }
+
+    /**
+     * Push a new head cell
+     */
+    void addFirst(int x, int y) {
+        if (length == cells.length) {
+            grow();
+        }
+        first = (first - 1) & mask;
+        cells[first] = pack(x, y);
+        length++;
+        pushCount++;
+    }
+
+    /**
+     * Pop the tail cell
+     * @return the packed coordinate of the removed cell
+     */
+    int removeLast() {
+        length--;
+        popCount++;
+        return cells[(first + length) & mask];
+    }
+
+    /**
+     * Remove all cells
+     */
+    void clear() {
+        first = 0;
+        length = 0;
+        pushCount = 0;
+        popCount = 0;
+        generation++;
+    }
+
+    /**
+     * Make this buffer a copy of the source buffer. If this buffer was
+     * synced from the same source before, only the cells pushed and popped
+     * since then are applied, so keeping a copy up to date costs O(1) per
+     * tick instead of O(length).
+     */
+    void syncFrom(SnakeBuffer source) {
+        long pushed = source.pushCount - pushCount;
+        long popped = source.popCount - popCount;
+
+        if (source.generation != generation || pushed < 0 || pushed > source.length) {
+            // Unrelated or too far behind: copy everything
+            clear();
+            for (int i = source.length - 1; i >= 0; i--) {
+                int cell = source.get(i);
+                addFirst(unpackX(cell), unpackY(cell));
+            }
+        } else {
+            // New cells at the head, oldest first, then drop the tail
+            for (int i = (int) pushed - 1; i >= 0; i--) {
+                int cell = source.get(i);
+                addFirst(unpackX(cell), unpackY(cell));
+            }
+            for (long i = 0; i < popped; i++) {
+                removeLast();
+            }
+        }
+
+        pushCount = source.pushCount;
+        popCount = source.popCount;
+        generation = source.generation;
+    }
+
+    /**
+     * Double the capacity, laying the cells out from the head again
+     */
+    private void grow() {
+        int[] grown = new int[cells.length << 1];
+        for (int i = 0; i < length; i++) {
+            grown[i] = cells[(first + i) & mask];
+        }
+        cells = grown;
+        mask = grown.length - 1;
+        first = 0;
+    }
+
+    // Read-only accessors
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Get the packed coordinate of the i-th cell, counted from the head
+     */
+    public int get(int i) {
+        return cells[(first + i) & mask];
+    }
+
+    public int getX(int i) {
+        return unpackX(get(i));
+    }
+
+    public int getY(int i) {
+        return unpackY(get(i));
+    }
+}
@@ -1,7 +1,12 @@
 package model;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import metrics.FoodSpawnEvent;
+import metrics.Metrics;
 
 /**
  * Main model class for the Snake Game.
@@ -16,20 +21,55 @@ public class SnakeGame {
 
     // Game elements
     private SnakeHead snakeHead;
-    private List<SnakeBody> snakeBody;
+    private SnakeBuffer snake;
+    private OccupancyGrid occupancy;
+    private FreeCellSet freeCells;
+
+    // Cells changed since the last published snapshot
+    private final BoardChanges changes = new BoardChanges();
+
+    // Snapshots for rendering on another thread
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private long snapshotSequence;
     private Food food;
 
     // Game state
     private boolean isGameOver;
+    private boolean isWon;
     private boolean isPaused;
     private int score;
     private Direction currentDirection;
     private Direction nextDirection;
-
-    // High scores
-    private List<HighScore> highScores;
-    private final String HIGH_SCORES_FILE = "highscores.dat";
+    private final GameRandom random = new GameRandom();
+
+    // Replay of the current game: its seed, the turns made by tick and a
+    // keyframe at every free cell rebuild
+    private final Random seedSource = new Random();
+    private final Replay.Recorder replayRecorder = new Replay.Recorder();
+    private long seed;
+    private long ticks;
+
+    // Rule of the game: the free cell set is brought into canonical order
+    // every rebuildInterval ticks, whether or not the game is recorded
+    private int rebuildInterval;
+    private long ticksToRebuild; // negative if there are no rebuilds
+    private boolean replayRecording = true;
+    private boolean recordingReplay;
+
+    // Telemetry: whether to time spawnFood(), and when the key press that
+    // last turned the snake was made (published for input-to-render latency)
+    private boolean metricsEnabled;
+    private long inputNanos;
+
+    // High scores: every submitted score is kept, the best ones are shown
+    private Leaderboard leaderboard;
+    private final String HIGH_SCORES_FILE = System.getProperty("snake.highscores", "highscores.dat");
     private final int MAX_HIGH_SCORES = 10;
+    private final HighScoreWriter highScoreWriter = HighScoreWriter.getDefault();
+    private HighScoreJournal highScoreJournal;
+    private CompletableFuture<Void> highScoresLoaded = CompletableFuture.completedFuture(null);
+    private static final long HIGH_SCORE_TAIL_INTERVAL = 1000; // ms between reads of other games' scores
+    private final String REPLAYS_DIRECTORY = System.getProperty("snake.replays", "replays");
 
     // Game speed
     private int gameSpeed;
@@ -48,36 +88,74 @@ public class SnakeGame {
      * Constructor to initialize the game
      */
     public SnakeGame(int width, int height, int cellSize) {
+        this(width, height, cellSize, true);
+    }
+
+    /**
+     * Constructor to initialize the game
+     * @param loadHighScores false to skip reading the high score file,
+     *                       e.g. for headless simulation; it is read in
+     *                       the background, see getHighScoresLoaded()
+     */
+    public SnakeGame(int width, int height, int cellSize, boolean loadHighScores) {
         this.boardWidth = width;
         this.boardHeight = height;
         this.cellSize = cellSize;
 
-        highScores = new ArrayList<>();
-        loadHighScores();
+        snake = new SnakeBuffer();
+        occupancy = new OccupancyGrid(width / cellSize, height / cellSize);
+        freeCells = new FreeCellSet(width / cellSize, height / cellSize);
+        rebuildInterval = Replay.rebuildInterval(width / cellSize, height / cellSize);
+
+        leaderboard = new TreeLeaderboard();
+        if (loadHighScores) {
+            loadHighScores();
+        }
 
         resetGame();
     }
 
     /**
-     * Initialize/reset the game state
+     * Initialize/reset the game state with a new random seed
      */
     public void resetGame() {
+        resetGame(seedSource.nextLong());
+    }
+
+    /**
+     * Reset the game with a fixed random seed, so the food positions
+     * (and therefore the whole game for the same inputs) are reproducible
+     */
+    public void resetGame(long seed) {
+        random.setSeed(seed);
+        this.seed = seed;
+        ticks = 0;
+        ticksToRebuild = rebuildInterval > 0 ? rebuildInterval : -1;
+        replayRecorder.clear();
+        recordingReplay = replayRecording;
+
         // Initialize snake at the center of the board
+        int maxY = boardHeight / cellSize;
         int startX = (boardWidth / cellSize) / 2;
-        int startY = (boardHeight / cellSize) / 2;
+        int startY = maxY / 2;
 
         snakeHead = new SnakeHead(startX, startY);
-        snakeBody = new ArrayList<>();
-
-        // Add initial body segments
-        for (int i = 0; i < 3; i++) {
-            snakeBody.add(new SnakeBody(startX, startY + i + 1));
+        snake.clear();
+        occupancy.clearAll();
+        freeCells.fill();
+        changes.markFull();
+
+        // Add initial body segments (tail first, the head ends up at index 0)
+        for (int i = 3; i > 0; i--) {
+            pushHead(startX, (startY + i) % maxY);
         }
+        pushHead(startX, startY);
 
         // Set initial direction and game state
         currentDirection = Direction.UP;
         nextDirection = Direction.UP;
         isGameOver = false;
+        isWon = false;
         isPaused = false;
         score = 0;
         gameSpeed = INITIAL_SPEED;
@@ -87,34 +165,53 @@ public class SnakeGame {
     }
 
     /**
-     * Spawns a food item at a random location not occupied by the snake
+     * Spawns a food item at a random location not occupied by the snake.
+     * If the snake fills the whole board there is nowhere left to put food
+     * and the game is won.
+     */
+    void spawnFood() {
+        if (freeCells.isEmpty()) {
+            food = null;
+            isWon = true;
+            isGameOver = true;
+            return;
+        }
+
+        if (metricsEnabled) {
+            spawnFoodRecorded();
+            return;
+        }
+        placeFood();
+    }
+
+    /**
+     * Spawn food, recording its time and a FoodSpawnEvent
      */
-    private void spawnFood() {
-        Random random = new Random();
+    private void spawnFoodRecorded() {
+        FoodSpawnEvent event = new FoodSpawnEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int freeCount = freeCells.size();
+        placeFood();
+        Metrics.SPAWN_FOOD.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.freeCells = freeCount;
+            event.x = food.getX();
+            event.y = food.getY();
+            event.commit();
+        }
+    }
+
+    /**
+     * Put the food on a random free cell
+     */
+    private void placeFood() {
         int maxX = boardWidth / cellSize;
-        int maxY = boardHeight / cellSize;
-        int foodX, foodY;
-        boolean validPosition;
-
-        do {
-            foodX = random.nextInt(maxX);
-            foodY = random.nextInt(maxY);
-            validPosition = true;
-
-            // Check if position is occupied by snake head or body
-            if (snakeHead.getX() == foodX && snakeHead.getY() == foodY) {
-                validPosition = false;
-            } else {
-                for (SnakeBody segment : snakeBody) {
-                    if (segment.getX() == foodX && segment.getY() == foodY) {
-                        validPosition = false;
-                        break;
-                    }
-                }
-            }
-        } while (!validPosition);
+        int cell = freeCells.randomCell(random);
 
-        food = new Food(foodX, foodY);
+        food = new Food(cell % maxX, cell / maxX);
+        changes.add(food.getX(), food.getY());
     }
 
     /**
@@ -125,14 +222,16 @@ public class SnakeGame {
             return;
         }
 
-        // Update direction
+        // Update direction, recording turns for the replay
+        if (nextDirection != currentDirection && recordingReplay) {
+            replayRecorder.recordTurn(ticks, nextDirection);
+        }
         currentDirection = nextDirection;
+        ticks++;
 
-        // Store previous positions for body segment updates
+        // Calculate new head position
         int prevX = snakeHead.getX();
         int prevY = snakeHead.getY();
-
-        // Calculate new head position
         int newX = prevX;
         int newY = prevY;
 
@@ -176,19 +275,67 @@ public class SnakeGame {
             return;
         }
 
-        // Check if snake has eaten food
-        if (snakeHead.getX() == food.getX() && snakeHead.getY() == food.getY()) {
+        // Move the snake: push the new head and pop the tail
+        pushHead(newX, newY);
+
+        // Check if snake has eaten food; growing just keeps the tail
+        if (newX == food.getX() && newY == food.getY()) {
             eatFood();
+        } else {
+            popTail();
+        }
+
+        if (--ticksToRebuild == 0) {
+            ticksToRebuild = rebuildInterval;
+            if (!isGameOver) {
+                rebuildFreeCells();
+            }
         }
+    }
 
-        // Move body segments
-        int currX, currY;
-        for (SnakeBody segment : snakeBody) {
-            currX = segment.getX();
-            currY = segment.getY();
-            segment.move(prevX, prevY);
-            prevX = currX;
-            prevY = currY;
+    /**
+     * Bring the free cell set into its canonical order, and record a
+     * keyframe if the game is recorded. Food spawns depend on the order of
+     * the set, so this runs at the same ticks whether or not the game is
+     * recorded, and restoring a keyframe of this tick spawns the same food.
+     */
+    private void rebuildFreeCells() {
+        freeCells.rebuild(occupancy);
+        if (recordingReplay) {
+            replayRecorder.recordKeyframe(ticks, boardWidth / cellSize, boardHeight / cellSize, snake,
+                    currentDirection, food, score, gameSpeed, random.getState());
+        }
+    }
+
+    /**
+     * Add a head cell to the snake and mark it occupied
+     */
+    private void pushHead(int x, int y) {
+        // The old head cell is redrawn as body
+        if (snake.length() > 0) {
+            changes.add(snake.getX(0), snake.getY(0));
+        }
+        changes.add(x, y);
+
+        snake.addFirst(x, y);
+        occupancy.set(x, y);
+        freeCells.remove(x, y);
+    }
+
+    /**
+     * Remove the tail cell from the snake and mark it free
+     */
+    private void popTail() {
+        int tail = snake.removeLast();
+        int tailX = SnakeBuffer.unpackX(tail);
+        int tailY = SnakeBuffer.unpackY(tail);
+        occupancy.clear(tailX, tailY);
+        freeCells.add(tailX, tailY);
+        changes.add(tailX, tailY);
+
+        // The segment before it becomes the tail
+        if (snake.length() > 0) {
+            changes.add(snake.getX(snake.length() - 1), snake.getY(snake.length() - 1));
         }
     }
 
@@ -199,13 +346,6 @@ public class SnakeGame {
         // Increase score
         score += 10;
 
-        // Add new body segment at the end of the snake
-        SnakeBody lastSegment = snakeBody.isEmpty() ?
-                new SnakeBody(snakeHead.getX(), snakeHead.getY()) :
-                snakeBody.get(snakeBody.size() - 1);
-
-        snakeBody.add(new SnakeBody(lastSegment.getX(), lastSegment.getY()));
-
         // Increase game speed
         if (gameSpeed > MIN_SPEED) {
             gameSpeed = Math.max(MIN_SPEED, gameSpeed - SPEED_INCREASE);
@@ -218,33 +358,133 @@ public class SnakeGame {
     /**
      * Check for collisions with self
      */
-    private boolean checkCollisions() {
-        int headX = snakeHead.getX();
-        int headY = snakeHead.getY();
+    boolean checkCollisions() {
+        // Check self-collision only (the tail has not moved yet)
+        return occupancy.isOccupied(snakeHead.getX(), snakeHead.getY());
+    }
 
-        // Check self-collision only
-        for (SnakeBody segment : snakeBody) {
-            if (headX == segment.getX() && headY == segment.getY()) {
-                return true;
-            }
+    /**
+     * Replace the snake with the given cells and spawn new food.
+     * Used to restore a saved position without replaying it, so this stops
+     * recording the game's replay until the next reset.
+     * @param cells packed cell coordinates, head first
+     * @param length number of cells to use
+     * @param direction the direction the snake is heading
+     */
+    void setSnake(int[] cells, int length, Direction direction) {
+        snake.clear();
+        occupancy.clearAll();
+        freeCells.fill();
+        changes.markFull();
+
+        for (int i = length - 1; i >= 0; i--) {
+            pushHead(SnakeBuffer.unpackX(cells[i]), SnakeBuffer.unpackY(cells[i]));
+        }
+        snakeHead = new SnakeHead(SnakeBuffer.unpackX(cells[0]), SnakeBuffer.unpackY(cells[0]));
+
+        currentDirection = direction;
+        nextDirection = direction;
+        isGameOver = false;
+        isWon = false;
+        recordingReplay = false;
+
+        spawnFood();
+    }
+
+    /**
+     * Put the game into the state recorded in a replay keyframe
+     * @param tick the number of ticks played up to the keyframe
+     * @param cells packed cell coordinates, head first
+     * @param foodCell the food's cell (y * columns + x), or -1 for none
+     */
+    void restoreKeyframe(long tick, int[] cells, Direction direction, int foodCell, int score, int speed,
+                         long randomState) {
+        snake.clear();
+        occupancy.clearAll();
+        changes.markFull();
+        for (int i = cells.length - 1; i >= 0; i--) {
+            pushHead(SnakeBuffer.unpackX(cells[i]), SnakeBuffer.unpackY(cells[i]));
+        }
+        freeCells.rebuild(occupancy);
+        snakeHead = new SnakeHead(SnakeBuffer.unpackX(cells[0]), SnakeBuffer.unpackY(cells[0]));
+
+        int maxX = boardWidth / cellSize;
+        food = foodCell < 0 ? null : new Food(foodCell % maxX, foodCell / maxX);
+        currentDirection = direction;
+        nextDirection = direction;
+        isGameOver = false;
+        isWon = false;
+        isPaused = false;
+        this.score = score;
+        gameSpeed = speed;
+        random.setState(randomState);
+        ticks = tick;
+        ticksToRebuild = rebuildInterval > 0 ? rebuildInterval - tick % rebuildInterval : -1;
+        recordingReplay = false;
+    }
+
+    /**
+     * Publish the current state as a snapshot for the view.
+     * Costs O(1) per tick in steady state and does not allocate.
+     */
+    public void publishSnapshot() {
+        GameSnapshot snapshot = snapshots.beginWrite();
+
+        snapshot.sequence = ++snapshotSequence;
+        snapshot.snake.syncFrom(snake);
+        changes.drainTo(snapshot.changes);
+        snapshot.headX = snakeHead.getX();
+        snapshot.headY = snakeHead.getY();
+        snapshot.hasFood = food != null;
+        if (food != null) {
+            snapshot.foodX = food.getX();
+            snapshot.foodY = food.getY();
         }
+        snapshot.score = score;
+        snapshot.gameOver = isGameOver;
+        snapshot.won = isWon;
+        snapshot.paused = isPaused;
+        snapshot.boardWidth = boardWidth;
+        snapshot.boardHeight = boardHeight;
+        snapshot.cellSize = cellSize;
+        snapshot.inputNanos = inputNanos;
+
+        snapshots.publish();
+    }
 
-        return false;
+    /**
+     * Get the exchange the snapshots are published to
+     */
+    public SnapshotExchange getSnapshots() {
+        return snapshots;
     }
 
     /**
-     * Change the snake's direction
+     * Check whether a cell is not occupied by the snake
+     * @return true if no part of the snake is on the cell
      */
-    public void changeDirection(Direction newDirection) {
-        // Prevent 180-degree turns
-        if ((currentDirection == Direction.UP && newDirection == Direction.DOWN) ||
+    public boolean isCellFree(int x, int y) {
+        return !occupancy.isOccupied(x, y);
+    }
+
+    /**
+     * Change the snake's direction for the next update
+     * @return false if the direction was ignored because it is null, would
+     *         reverse the snake or is the direction it already moves in
+     */
+    public boolean changeDirection(Direction newDirection) {
+        // Ignore missing directions and prevent 180-degree turns
+        if (newDirection == null ||
+                (currentDirection == Direction.UP && newDirection == Direction.DOWN) ||
                 (currentDirection == Direction.DOWN && newDirection == Direction.UP) ||
                 (currentDirection == Direction.LEFT && newDirection == Direction.RIGHT) ||
-                (currentDirection == Direction.RIGHT && newDirection == Direction.LEFT)) {
-            return;
+                (currentDirection == Direction.RIGHT && newDirection == Direction.LEFT) ||
+                currentDirection == newDirection) {
+            return false;
         }
 
         nextDirection = newDirection;
+        return true;
     }
 
     /**
@@ -252,7 +492,8 @@ public class SnakeGame {
      * @return true if the score qualifies as a high score, false otherwise
      */
     public boolean isHighScore() {
-        return highScores.size() < MAX_HIGH_SCORES || score > highScores.get(highScores.size() - 1).getScore();
+        receiveHighScores();
+        return leaderboard.rankOf(score) <= MAX_HIGH_SCORES;
     }
 
     /**
@@ -261,47 +502,63 @@ public class SnakeGame {
      */
     public void addHighScore(String playerName) {
         if (isHighScore()) {
-            highScores.add(new HighScore(playerName, score));
-
-            // Sort high scores
-            Collections.sort(highScores, (hs1, hs2) -> Integer.compare(hs2.getScore(), hs1.getScore()));
-
-            // Trim list to max size
-            if (highScores.size() > MAX_HIGH_SCORES) {
-                highScores = highScores.subList(0, MAX_HIGH_SCORES);
+            HighScore highScore = new HighScore(playerName, score);
+            saveHighScore(highScore);
+            if (recordingReplay) {
+                highScoreWriter.saveReplay(Paths.get(REPLAYS_DIRECTORY,
+                        "replay-" + score + "-" + highScore.getTimestamp() + ".replay"), getReplay());
             }
-
-            // Save high scores
-            saveHighScores();
         }
     }
 
     /**
-     * Save high scores to a file
+     * Add a score to the leaderboard and append it to the high score
+     * journal in the background
      */
-    private void saveHighScores() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(HIGH_SCORES_FILE))) {
-            oos.writeObject(highScores);
-        } catch (IOException e) {
-            System.err.println("Error saving high scores: " + e.getMessage());
+    private void saveHighScore(HighScore highScore) {
+        highScoresLoaded.join();
+        leaderboard.add(highScore);
+        if (highScoreJournal == null) {
+            // Not loaded: only share scores from now on
+            try {
+                highScoreJournal = HighScoreJournal.open(Paths.get(HIGH_SCORES_FILE), false);
+            } catch (IOException e) {
+                System.err.println("Error saving high scores: " + e.getMessage());
+                return;
+            }
         }
+        highScoreWriter.append(highScoreJournal, highScore);
     }
 
     /**
-     * Load high scores from a file
+     * Load high scores from the journal on the high score writer's thread,
+     * then keep reading the scores other games running on the same file
+     * append to it. Until the load is done the leaderboard and journal are
+     * only touched by that thread: everything else waits for
+     * highScoresLoaded first.
      */
-    @SuppressWarnings("unchecked")
     private void loadHighScores() {
-        File file = new File(HIGH_SCORES_FILE);
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                highScores = (List<HighScore>) ois.readObject();
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading high scores: " + e.getMessage());
-                highScores = new ArrayList<>();
+        highScoresLoaded = highScoreWriter.load(Paths.get(HIGH_SCORES_FILE)).handle((journal, error) -> {
+            if (error != null) {
+                System.err.println("Error loading high scores: " + error.getMessage());
+                return null;
             }
-        } else {
-            highScores = new ArrayList<>();
+            List<HighScore> scores = new ArrayList<>();
+            journal.drainReceived(scores::add);
+            leaderboard = new TreeLeaderboard(scores);
+            highScoreJournal = journal;
+            highScoreWriter.tail(journal, HIGH_SCORE_TAIL_INTERVAL);
+            return null;
+        });
+    }
+
+    /**
+     * Add the scores other games appended to the journal since the last call
+     */
+    private void receiveHighScores() {
+        highScoresLoaded.join();
+        if (highScoreJournal != null) {
+            highScoreJournal.drainReceived(leaderboard::add);
         }
     }
 
@@ -311,6 +568,13 @@ public class SnakeGame {
         return isGameOver;
     }
 
+    /**
+     * Check if the game ended because the snake filled the board
+     */
+    public boolean isWon() {
+        return isWon;
+    }
+
     public boolean isPaused() {
         return isPaused;
     }
@@ -327,10 +591,17 @@ public class SnakeGame {
         return snakeHead;
     }
 
-    public List<SnakeBody> getSnakeBody() {
-        return snakeBody;
+    /**
+     * Get a read-only view of the snake's cells, head first
+     */
+    public SnakeBuffer getSnake() {
+        return snake;
     }
 
+    /**
+     * Get the current food item
+     * @return the food, or null once the snake has filled the board
+     */
     public Food getFood() {
         return food;
     }
@@ -347,14 +618,113 @@ public class SnakeGame {
         return cellSize;
     }
 
+    /**
+     * Get the best scores, as many as the high score list shows, as a new
+     * list. Like the other high score methods this updates the leaderboard,
+     * so callers sharing the game between threads must hold its lock.
+     */
     public List<HighScore> getHighScores() {
-        return new ArrayList<>(highScores);
+        receiveHighScores();
+        return leaderboard.top(MAX_HIGH_SCORES);
+    }
+
+    /**
+     * Get all scores ever submitted, including those of other games
+     * sharing the high score file
+     */
+    public Leaderboard getLeaderboard() {
+        receiveHighScores();
+        return leaderboard;
+    }
+
+    /**
+     * Completes once the high score file was read (or could not be); until
+     * then the high score methods wait for it
+     */
+    public CompletableFuture<Void> getHighScoresLoaded() {
+        return highScoresLoaded.copy();
+    }
+
+    /**
+     * Get the background writer that saves the high scores, e.g. to wait for
+     * pending writes or read its metrics
+     */
+    public HighScoreWriter getHighScoreWriter() {
+        return highScoreWriter;
     }
 
     public int getGameSpeed() {
         return gameSpeed;
     }
 
+    /**
+     * Get the random seed the current game was started with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of ticks played since the game was started
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get a replay of the current game so far, e.g. to save it once the
+     * game is over
+     * @throws IllegalStateException if the game is not being recorded, e.g.
+     *         because the snake was replaced since the last reset
+     */
+    public Replay getReplay() {
+        if (!recordingReplay) {
+            throw new IllegalStateException("Game is not being recorded");
+        }
+        return replayRecorder.toReplay(boardWidth / cellSize, boardHeight / cellSize, seed, ticks, score,
+                rebuildInterval);
+    }
+
+    /**
+     * Turn recording replays on or off, e.g. off for a game that plays one
+     * back or a long-running bot game, whose replay would keep growing.
+     * Turning it off also stops recording the current game; turning it on
+     * takes effect at the next reset.
+     */
+    public void setReplayRecording(boolean replayRecording) {
+        this.replayRecording = replayRecording;
+        if (!replayRecording) {
+            recordingReplay = false;
+            replayRecorder.clear();
+        }
+    }
+
+    /**
+     * Record telemetry (see metrics.Metrics) for this game, e.g. for the
+     * game shown on screen but not for headless runs
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    /**
+     * Note the time of the key press that turned the snake this tick; the
+     * next snapshots carry it so the view can time input to render
+     */
+    public void markInput(long pressedNanos) {
+        inputNanos = pressedNanos;
+    }
+
+    /**
+     * Set the number of ticks between free cell rebuilds, 0 for none. This
+     * is a rule of the game (see Replay.rebuildInterval()), so it only
+     * changes to play back a replay recorded under another rule.
+     */
+    void setRebuildInterval(int rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+        ticksToRebuild = rebuildInterval > 0 ? rebuildInterval - ticks % rebuildInterval : -1;
+    }
+
     /**
      * Add a high score with the given name and score
      * (This overload is for manually adding scores, different from the current game score)
@@ -362,11 +732,6 @@ public class SnakeGame {
      * @param score The score value
      */
     public void addHighScore(String name, int score) {
-        highScores.add(new HighScore(name, score));
-        Collections.sort(highScores, (hs1, hs2) -> Integer.compare(hs2.getScore(), hs1.getScore()));
-        if (highScores.size() > MAX_HIGH_SCORES) {
-            highScores = highScores.subList(0, MAX_HIGH_SCORES);
-        }
-        saveHighScores();
+        saveHighScore(new HighScore(name, score));
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of GameSnapshots between the thread that runs the
+ * game (the writer) and the thread that renders it (the reader).
+ * The writer fills its back snapshot and swaps it with the middle one; the
+ * reader swaps its front snapshot with the middle one when a newer one is
+ * there. Neither side waits for or allocates anything.
+ * There must be at most one writer and one reader thread at a time.
+ */
+public class SnapshotExchange {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final GameSnapshot[] snapshots = {new GameSnapshot(), new GameSnapshot(), new GameSnapshot()};
+
+    // Index of the middle snapshot, plus FRESH if the reader has not taken it yet
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Owned by the writer and the reader respectively
+    private int back = 0;
+    private int front = 2;
+
+    /**
+     * Get the snapshot to fill in before calling publish()
+     */
+    GameSnapshot beginWrite() {
+        return snapshots[back];
+    }
+
+    /**
+     * Hand the filled snapshot over to the reader
+     */
+    void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Get the latest published snapshot. It stays unchanged until the next
+     * call to acquire().
+     */
+    public GameSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return snapshots[front];
+    }
+}
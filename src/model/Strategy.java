@@ -0,0 +1,22 @@
+package model;
+
+import model.SnakeGame.Direction;
+
+/**
+ * A bot that steers the snake, e.g. for self-play evaluation.
+ * A strategy may keep state between ticks; it is only used by one thread
+ * at a time and reset at the start of every game.
+ */
+public interface Strategy {
+    /**
+     * Called when a new game starts
+     */
+    default void reset(SnakeGame game) {
+    }
+
+    /**
+     * Pick the direction for the next tick
+     * @return the new direction, or null to keep going straight
+     */
+    Direction nextDirection(SnakeGame game);
+}
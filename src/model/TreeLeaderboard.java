@@ -0,0 +1,332 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Leaderboard backed by an order-statistic tree: an AVL tree whose nodes
+ * also know the size of their subtree, so adding a score, finding the
+ * score at a rank and finding the rank of a score all take O(log n).
+ * Nodes are never changed once built; adding a score copies the O(log n)
+ * nodes on its path instead. That makes asList() an O(1) snapshot which
+ * stays valid while more scores are added.
+ * Not thread-safe, apart from the snapshots.
+ */
+public class TreeLeaderboard implements Leaderboard {
+    private Node root;
+
+    // Insertion order, which breaks ties between equal scores and timestamps
+    private long nextSequence;
+
+    // Node holding each player's best score
+    private final Map<String, Node> bestByPlayer = new HashMap<>();
+
+    /**
+     * Immutable tree node
+     */
+    private static final class Node {
+        final HighScore score;
+        final long sequence;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(HighScore score, long sequence, Node left, Node right) {
+            this.score = score;
+            this.sequence = sequence;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(score, sequence, left, right);
+        }
+    }
+
+    /**
+     * Constructor for an empty leaderboard
+     */
+    public TreeLeaderboard() {
+    }
+
+    /**
+     * Constructor for a leaderboard holding the given scores. Takes O(n)
+     * if they are already ordered best first, as asList() returns them.
+     */
+    public TreeLeaderboard(List<HighScore> scores) {
+        HighScore[] sorted = scores.toArray(new HighScore[0]);
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(sorted[i - 1], sorted[i]) > 0) {
+                // Stable, so equal scores keep their order
+                Arrays.sort(sorted, TreeLeaderboard::compare);
+                break;
+            }
+        }
+        root = build(sorted, 0, sorted.length);
+        nextSequence = sorted.length;
+    }
+
+    /**
+     * Build a balanced tree from sorted[from, to), numbered by position
+     */
+    private Node build(HighScore[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = new Node(sorted[middle], middle, build(sorted, from, middle), build(sorted, middle + 1, to));
+        updateBest(node);
+        return node;
+    }
+
+    @Override
+    public void add(HighScore score) {
+        Node node = new Node(score, nextSequence++, null, null);
+        root = insert(root, node);
+        updateBest(node);
+    }
+
+    private void updateBest(Node node) {
+        bestByPlayer.merge(node.score.getPlayerName(), node, (best, other) -> compare(best, other) <= 0 ? best : other);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public List<HighScore> top(int count) {
+        List<HighScore> scores = new ArrayList<>(Math.max(0, Math.min(count, size())));
+        collect(root, 0, count, scores);
+        return scores;
+    }
+
+    @Override
+    public int rankOf(int score) {
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score.getScore() >= score) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return before + 1;
+    }
+
+    @Override
+    public HighScore getBest(String playerName) {
+        Node best = bestByPlayer.get(playerName);
+        return best == null ? null : best.score;
+    }
+
+    @Override
+    public int rankOfPlayer(String playerName) {
+        Node best = bestByPlayer.get(playerName);
+        return best == null ? 0 : rankOfNode(best);
+    }
+
+    @Override
+    public List<HighScore> around(String playerName, int radius) {
+        int rank = rankOfPlayer(playerName);
+        if (rank == 0) {
+            return new ArrayList<>();
+        }
+        int from = Math.max(0, rank - 1 - radius);
+        int to = Math.min(size(), rank + radius);
+        List<HighScore> scores = new ArrayList<>(to - from);
+        collect(root, from, to, scores);
+        return scores;
+    }
+
+    @Override
+    public List<HighScore> asList() {
+        return new Snapshot(root);
+    }
+
+    // Tree operations
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Order of two scores: negative if a ranks higher than b
+     */
+    static int compare(HighScore a, HighScore b) {
+        if (a.getScore() != b.getScore()) {
+            return Integer.compare(b.getScore(), a.getScore());
+        }
+        return Long.compare(a.getTimestamp(), b.getTimestamp());
+    }
+
+    private static int compare(Node a, Node b) {
+        int order = compare(a.score, b.score);
+        return order != 0 ? order : Long.compare(a.sequence, b.sequence);
+    }
+
+    /**
+     * Rank of a node in the current tree, found by its key
+     */
+    private int rankOfNode(Node target) {
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int order = compare(target, node);
+            if (order < 0) {
+                node = node.left;
+            } else if (order > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        throw new IllegalStateException("Score not in leaderboard");
+    }
+
+    /**
+     * Insert a new leaf, copying the nodes on its path
+     */
+    private static Node insert(Node node, Node leaf) {
+        if (node == null) {
+            return leaf;
+        }
+        if (compare(leaf, node) < 0) {
+            return balance(node.with(insert(node.left, leaf), node.right));
+        }
+        return balance(node.with(node.left, insert(node.right, leaf)));
+    }
+
+    private static Node balance(Node node) {
+        int difference = height(node.left) - height(node.right);
+        if (difference > 1) {
+            Node left = node.left;
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left);
+            }
+            return rotateRight(node.with(left, node.right));
+        }
+        if (difference < -1) {
+            Node right = node.right;
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right);
+            }
+            return rotateLeft(node.with(node.left, right));
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        return left.with(left.left, node.with(left.right, node.right));
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        return right.with(node.with(node.left, right.left), right.right);
+    }
+
+    /**
+     * Node at the given position (0-based) of the subtree
+     */
+    private static Node select(Node node, int index) {
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Add the scores at positions [from, to) of the subtree, in order
+     */
+    private static void collect(Node node, int from, int to, List<HighScore> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.score);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    /**
+     * Read-only list view of a tree as it was when the snapshot was taken
+     */
+    private static final class Snapshot extends AbstractList<HighScore> {
+        private final Node root;
+
+        Snapshot(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        public HighScore get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            }
+            return select(root, index).score;
+        }
+
+        @Override
+        public int size() {
+            return TreeLeaderboard.size(root);
+        }
+
+        @Override
+        public Iterator<HighScore> iterator() {
+            // In-order walk with an explicit stack, O(1) amortized per score
+            return new Iterator<HighScore>() {
+                private final Deque<Node> path = new ArrayDeque<>();
+
+                {
+                    pushLeft(root);
+                }
+
+                private void pushLeft(Node node) {
+                    for (; node != null; node = node.left) {
+                        path.push(node);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public HighScore next() {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node node = path.pop();
+                    pushLeft(node.right);
+                    return node.score;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+import model.GameEngine;
+import model.GameSnapshot;
+import model.Replay;
+import model.ReplayPlayer;
+import model.SnakeGame;
+import model.Strategy;
+
+/**
+ * Turns games into sequences of PNG frames without a display, e.g. to
+ * review a replay or a bot run, or to diff the frames of two builds.
+ * The game is stepped on the calling thread, which only copies the
+ * snapshot of each frame; worker threads, each with its own GameRenderer
+ * and image, draw and PNG-encode the frames in parallel. The encoded
+ * frames are written strictly in order by the calling thread, with at most
+ * a few frames per worker in flight, so memory stays bounded however long
+ * the game is.
+ *
+ * Usage: java -Djava.awt.headless=true -cp out view.FrameExporter
+ *        [--cell size] [--every ticks] [--threads n] [--max-ticks n]
+ *        replay-file|strategy-class[:seed] output-directory|-
+ * With "-" the PNGs are written one after another to standard output,
+ * e.g. for ffmpeg -f image2pipe.
+ */
+public class FrameExporter implements AutoCloseable {
+    private static final String FILE_FORMAT = "frame-%06d.png";
+    private static final int FRAMES_PER_THREAD = 4;
+    private static final int DEFAULT_CELL_SIZE = 20;
+    private static final long DEFAULT_MAX_TICKS = 100_000;
+
+    // Where the frames go: numbered files in a directory, or one stream
+    private final Path directory;
+    private final OutputStream out;
+
+    // Workers and the frames being drawn, oldest first
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+    private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+    private final ArrayDeque<GameSnapshot> spareSnapshots = new ArrayDeque<>();
+    private final int maxPending;
+
+    private long framesWritten;
+    private long bytesWritten;
+
+    /**
+     * A snapshot copy and the task drawing and encoding it
+     */
+    private static class Frame {
+        final GameSnapshot snapshot;
+        final ForkJoinTask<byte[]> png;
+
+        Frame(GameSnapshot snapshot, ForkJoinTask<byte[]> png) {
+            this.snapshot = snapshot;
+            this.png = png;
+        }
+    }
+
+    /**
+     * Renderer, image and encoding buffer of one worker thread
+     */
+    private static class Worker {
+        private final GameRenderer renderer = new GameRenderer();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private BufferedImage image;
+
+        byte[] encode(GameSnapshot snapshot) {
+            int width = snapshot.getBoardWidth();
+            int height = snapshot.getBoardHeight();
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            renderer.setSize(width, height);
+            renderer.setSnapshot(snapshot);
+
+            Graphics2D g2d = image.createGraphics();
+            try {
+                renderer.render(g2d);
+            } finally {
+                g2d.dispose();
+            }
+
+            buffer.reset();
+            try {
+                ImageIO.write(image, "png", buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Constructor writing numbered PNG files into a directory, which is
+     * created if needed
+     */
+    public FrameExporter(Path directory, int threads) throws IOException {
+        this(Files.createDirectories(directory), null, threads);
+    }
+
+    /**
+     * Constructor writing the PNGs one after another to a stream
+     */
+    public FrameExporter(OutputStream out, int threads) {
+        this(null, out, threads);
+    }
+
+    private FrameExporter(Path directory, OutputStream out, int threads) {
+        this.directory = directory;
+        this.out = out;
+        this.pool = new ForkJoinPool(threads);
+        this.maxPending = threads * FRAMES_PER_THREAD;
+
+        // Encode in memory rather than through temporary files
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Queue a frame showing the snapshot. The snapshot is copied, so it may
+     * change as soon as this returns. While too many frames are in flight,
+     * waits for the oldest one and writes it.
+     */
+    public void add(GameSnapshot snapshot) throws IOException {
+        if (pending.size() >= maxPending) {
+            writeOldest();
+        }
+        GameSnapshot copy = spareSnapshots.isEmpty() ? new GameSnapshot() : spareSnapshots.poll();
+        copy.copyFrom(snapshot);
+        pending.add(new Frame(copy, pool.submit(() -> workers.get().encode(copy))));
+    }
+
+    /**
+     * Publish the game's current state and queue a frame showing it
+     */
+    public void add(SnakeGame game) throws IOException {
+        game.publishSnapshot();
+        add(game.getSnapshots().acquire());
+    }
+
+    /**
+     * Queue a frame of the game's current state, then step it and queue a
+     * frame every given number of ticks, plus one of the final state, until
+     * the steps report that the game ended or is idle
+     * @return the number of frames queued
+     */
+    public long export(SnakeGame game, Supplier<GameEngine.StepResult> steps, int every) throws IOException {
+        if (every < 1) {
+            throw new IllegalArgumentException("Invalid frame interval: " + every);
+        }
+        add(game);
+        long frames = 1;
+        long frameTick = game.getTicks();
+        while (true) {
+            GameEngine.StepResult result = steps.get();
+            boolean ended = result == GameEngine.StepResult.IDLE || result == GameEngine.StepResult.DIED
+                    || result == GameEngine.StepResult.WON;
+            long tick = game.getTicks();
+            if (tick != frameTick && (ended || tick % every == 0)) {
+                add(game);
+                frames++;
+                frameTick = tick;
+            }
+            if (ended) {
+                return frames;
+            }
+        }
+    }
+
+    /**
+     * Write all queued frames
+     */
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writeOldest();
+        }
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Wait for the oldest frame to be encoded and write it
+     */
+    private void writeOldest() throws IOException {
+        Frame frame = pending.poll();
+        byte[] png;
+        try {
+            png = frame.png.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding frame " + framesWritten);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Error rendering frame " + framesWritten, e.getCause());
+        }
+
+        if (directory != null) {
+            Files.write(directory.resolve(String.format(Locale.ROOT, FILE_FORMAT, framesWritten)), png);
+        } else {
+            out.write(png);
+        }
+        framesWritten++;
+        bytesWritten += png.length;
+        spareSnapshots.add(frame.snapshot);
+    }
+
+    /**
+     * Number of frames written so far
+     */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * Number of PNG bytes written so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Write the queued frames and stop the worker threads
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) {
+        int cellSize = DEFAULT_CELL_SIZE;
+        int every = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxTicks = DEFAULT_MAX_TICKS;
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("--"); i += 2) {
+            switch (args[i]) {
+                case "--cell":
+                    cellSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--every":
+                    every = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--max-ticks":
+                    maxTicks = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (args.length - i != 2) {
+            System.err.println("Usage: FrameExporter [--cell size] [--every ticks] [--threads n] [--max-ticks n]"
+                    + " replay-file|strategy-class[:seed] output-directory|-");
+            System.exit(2);
+        }
+        String source = args[i];
+        String target = args[i + 1];
+
+        long start = System.nanoTime();
+        try (FrameExporter exporter = target.equals("-")
+                ? new FrameExporter(System.out, threads)
+                : new FrameExporter(Paths.get(target), threads)) {
+            if (Files.isRegularFile(Paths.get(source))) {
+                ReplayPlayer player = new ReplayPlayer(Replay.read(Paths.get(source)), cellSize);
+                exporter.export(player.getGame(), player::step, every);
+            } else {
+                exportBot(exporter, source, cellSize, maxTicks, every);
+            }
+            exporter.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf(Locale.ROOT, "%d frames, %d KB in %.2f s (%.0f frames/s, %d threads)%n",
+                    exporter.getFramesWritten(), exporter.getBytesWritten() / 1024, seconds,
+                    exporter.getFramesWritten() / seconds, threads);
+        } catch (IOException e) {
+            System.err.println("Error exporting frames: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Export a game played by a strategy on the default 30x25 board
+     */
+    private static void exportBot(FrameExporter exporter, String source, int cellSize, long maxTicks, int every)
+            throws IOException {
+        int separator = source.lastIndexOf(':');
+        String strategyClass = separator < 0 ? source : source.substring(0, separator);
+        long seed = separator < 0 ? 42 : Long.parseLong(source.substring(separator + 1));
+
+        Strategy strategy;
+        try {
+            strategy = Class.forName(strategyClass).asSubclass(Strategy.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            System.err.println("Error creating strategy: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        SnakeGame game = new SnakeGame(30 * cellSize, 25 * cellSize, cellSize, false);
+        GameEngine engine = new GameEngine(game);
+        engine.reset(seed);
+        strategy.reset(game);
+        exporter.export(game, () -> game.getTicks() >= maxTicks
+                ? GameEngine.StepResult.IDLE
+                : engine.step(strategy.nextDirection(game)), every);
+    }
+}
@@ -4,10 +4,13 @@ import javax.swing.*;
 import java.awt.*;
 
 import controller.GameController;
+import metrics.StartupTimer;
 
 /**
  * Main frame for the Snake Game.
  * Contains all the game panels and manages switching between them.
+ * Only the menu is built up front so the window shows right away; the game
+ * and high score panels are created the first time they are needed.
  */
 public class GameFrame extends JFrame {
     private static final long serialVersionUID = 1L;
@@ -16,7 +19,7 @@ public class GameFrame extends JFrame {
     private static final int DEFAULT_WIDTH = 615;
     private static final int DEFAULT_HEIGHT = 540;
 
-    // Panels
+    // Panels, the game and high score panels created on first use
     private MenuPanel menuPanel;
     private GamePanel gamePanel;
     private HighScorePanel highScorePanel;
@@ -44,21 +47,26 @@ public class GameFrame extends JFrame {
     }
 
     /**
-     * Initialize all panels
+     * Initialize the menu panel
      */
     private void initPanels() {
         // Create panels
         menuPanel = new MenuPanel();
-        gamePanel = new GamePanel();
-        highScorePanel = new HighScorePanel();
 
         // Set panel layouts
         setLayout(new CardLayout());
 
         // Add panels to frame
         add(menuPanel, "MENU");
-        add(gamePanel, "GAME");
-        add(highScorePanel, "HIGHSCORES");
+    }
+
+    /**
+     * Paint the frame, noting the first paint for the startup timing
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        StartupTimer.markFirstFrame();
     }
 
     /**
@@ -70,9 +78,12 @@ public class GameFrame extends JFrame {
         // Add action listeners to menu buttons
         menuPanel.setPlayButtonListener(e -> controller.startNewGame());
         menuPanel.setHighScoreButtonListener(e -> controller.showHighScores());
+        menuPanel.setReplayButtonListener(e -> controller.watchReplay());
 
         // Add action listeners to high score panel buttons
-        highScorePanel.setBackButtonListener(e -> controller.showMenu());
+        if (highScorePanel != null) {
+            highScorePanel.setBackButtonListener(e -> controller.showMenu());
+        }
 
         // Set key listener for game panel
         addKeyListener(controller.getKeyboardController());
@@ -92,6 +103,7 @@ public class GameFrame extends JFrame {
      * Show the game panel
      */
     public void showGamePanel() {
+        getGamePanel();
         CardLayout cl = (CardLayout) getContentPane().getLayout();
         cl.show(getContentPane(), "GAME");
         // Reset focus for keyboard input
@@ -102,6 +114,7 @@ public class GameFrame extends JFrame {
      * Show the high score panel
      */
     public void showHighScorePanel() {
+        getHighScorePanel();
         CardLayout cl = (CardLayout) getContentPane().getLayout();
         cl.show(getContentPane(), "HIGHSCORES");
         // Reset focus for keyboard input
@@ -110,11 +123,28 @@ public class GameFrame extends JFrame {
 
     // Getters for panels
 
+    /**
+     * Get the game panel, creating it on first use
+     */
     public GamePanel getGamePanel() {
+        if (gamePanel == null) {
+            gamePanel = new GamePanel();
+            add(gamePanel, "GAME");
+        }
         return gamePanel;
     }
 
+    /**
+     * Get the high score panel, creating it on first use
+     */
     public HighScorePanel getHighScorePanel() {
+        if (highScorePanel == null) {
+            highScorePanel = new HighScorePanel();
+            if (controller != null) {
+                highScorePanel.setBackButtonListener(e -> controller.showMenu());
+            }
+            add(highScorePanel, "HIGHSCORES");
+        }
         return highScorePanel;
     }
 }
\ No newline at end of file
@@ -2,224 +2,282 @@ package view;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
-import model.Food;
-import model.SnakeBody;
-import model.SnakeHead;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.VolatileImage;
+import java.util.function.LongConsumer;
+import metrics.Metrics;
+import metrics.PaintEvent;
+import model.BoardChanges;
+import model.GameSnapshot;
 
 /**
- * Panel for rendering the actual game.
+ * Panel for rendering the actual game with a GameRenderer.
+ * The board is rendered into a VolatileImage back buffer when the game
+ * state changes, only re-rendering the cells that changed in a tick;
+ * painting copies the back buffer to the screen and adds the score and
+ * overlays.
+ * When a replay is shown, a scrub bar at the bottom shows its position and
+ * clicking or dragging on it seeks.
  */
 public class GamePanel extends JPanel {
     private static final long serialVersionUID = 1L;
 
-    // Game elements
-    private SnakeHead snakeHead;
-    private List<SnakeBody> snakeBody;
-    private Food food;
-
-    // Game state
-    private boolean isGameOver;
-    private boolean isPaused;
-    private int score;
-
-    // Colors
-    private final Color BACKGROUND_COLOR = Color.BLACK;
-    private final Color SNAKE_HEAD_COLOR = Color.GREEN;
-    private final Color SNAKE_BODY_COLOR = new Color(0, 180, 0);
-    private final Color FOOD_COLOR = Color.RED;
-    private final Color GRID_COLOR = new Color(20, 20, 20);
-    private final Color TEXT_COLOR = Color.WHITE;
-
-    // Game board dimensions
-    private int boardWidth;
-    private int boardHeight;
-    private int cellSize;
+    // Snapshot being shown
+    private GameSnapshot snapshot;
+    private long sequence;
+
+    // Key press shown by the last snapshot, and one whose turn is not
+    // painted yet (0 if none), for input-to-render latency
+    private long shownInputNanos;
+    private long unpaintedInputNanos;
+
+    // Set when the whole board was rendered since the last paint
+    private boolean fullRenderSincePaint;
+
+    // Replay position for the scrub bar, no bar while replayTicks is 0
+    private long replayTick;
+    private long replayTicks;
+    private boolean replayPlaying;
+    private LongConsumer scrubListener;
+    private boolean scrubbing;
+
+    // Draws the game, and the back buffer it draws the board into
+    private final GameRenderer renderer = new GameRenderer();
+    private VolatileImage backBuffer;
 
     /**
      * Constructor
      */
     public GamePanel() {
-        setBackground(BACKGROUND_COLOR);
-        boardWidth = 0;
-        boardHeight = 0;
-        cellSize = 0;
+        setBackground(Color.BLACK);
+
+        // Seek while the mouse is pressed or dragged on the scrub bar
+        MouseAdapter scrubHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                scrubbing = replayTicks > 0 && getScrubBarBounds().contains(e.getPoint());
+                scrub(e);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                scrub(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                scrubbing = false;
+            }
+        };
+        addMouseListener(scrubHandler);
+        addMouseMotionListener(scrubHandler);
     }
 
     /**
-     * Update game state before rendering
+     * Show the position of a replay in the scrub bar
+     * @param tick the tick shown
+     * @param ticks the length of the replay, 0 to hide the scrub bar
+     * @param playing false to mark the replay as paused
      */
-    public void updateGameState(SnakeHead head, List<SnakeBody> body, Food food,
-                                boolean gameOver, boolean paused, int score,
-                                int boardWidth, int boardHeight, int cellSize) {
-        this.snakeHead = head;
-        this.snakeBody = body;
-        this.food = food;
-        this.isGameOver = gameOver;
-        this.isPaused = paused;
-        this.score = score;
-        this.boardWidth = boardWidth;
-        this.boardHeight = boardHeight;
-        this.cellSize = cellSize;
-
-        // Repaint the panel
-        repaint();
-    }
-
-    /**
-     * Paint the game
-     */
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        // Enable anti-aliasing for smoother graphics
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Draw the grid
-        drawGrid(g2d);
-
-        // Draw game elements
-        if (snakeHead != null && snakeBody != null && food != null) {
-            drawFood(g2d);
-            drawSnake(g2d);
+    public void setReplayPosition(long tick, long ticks, boolean playing) {
+        if (tick == replayTick && ticks == replayTicks && playing == replayPlaying) {
+            return;
         }
-
-        // Draw score
-        drawScore(g2d);
-
-        // Draw game over message
-        if (isGameOver) {
-            drawGameOver(g2d);
-        }
-
-        // Draw pause message
-        if (isPaused && !isGameOver) {
-            drawPaused(g2d);
+        boolean shown = replayTicks > 0;
+        replayTick = tick;
+        replayTicks = ticks;
+        replayPlaying = playing;
+        renderer.setReplayPosition(tick, ticks, playing);
+        if (shown || ticks > 0) {
+            repaint(getScrubBarBounds());
         }
     }
 
     /**
-     * Draw the grid
+     * Set the listener told the tick to seek to when the scrub bar is used
      */
-    private void drawGrid(Graphics2D g2d) {
-        g2d.setColor(GRID_COLOR);
-
-        // Draw vertical lines
-        for (int x = 0; x <= boardWidth; x += cellSize) {
-            g2d.drawLine(x, 0, x, boardHeight);
-        }
-
-        // Draw horizontal lines
-        for (int y = 0; y <= boardHeight; y += cellSize) {
-            g2d.drawLine(0, y, boardWidth, y);
-        }
+    public void setScrubListener(LongConsumer listener) {
+        this.scrubListener = listener;
     }
 
     /**
-     * Draw the snake
+     * Seek to the tick under the mouse
      */
-    private void drawSnake(Graphics2D g2d) {
-        // Draw body segments
-        g2d.setColor(SNAKE_BODY_COLOR);
-        for (SnakeBody segment : snakeBody) {
-            int x = segment.getX() * cellSize;
-            int y = segment.getY() * cellSize;
-            g2d.fillRoundRect(x + 1, y + 1, cellSize - 2, cellSize - 2, 8, 8);
+    private void scrub(MouseEvent e) {
+        if (!scrubbing || scrubListener == null) {
+            return;
         }
+        double position = Math.max(0, Math.min(1, e.getX() / (double) Math.max(1, getWidth() - 1)));
+        scrubListener.accept(Math.round(position * replayTicks));
+    }
 
-        // Draw head
-        g2d.setColor(SNAKE_HEAD_COLOR);
-        int headX = snakeHead.getX() * cellSize;
-        int headY = snakeHead.getY() * cellSize;
-        g2d.fillRoundRect(headX + 1, headY + 1, cellSize - 2, cellSize - 2, 8, 8);
-
-        // Draw eyes
-        g2d.setColor(Color.BLACK);
-        int eyeSize = cellSize / 5;
-        g2d.fillOval(headX + cellSize / 4 - eyeSize / 2, headY + cellSize / 3 - eyeSize / 2, eyeSize, eyeSize);
-        g2d.fillOval(headX + 3 * cellSize / 4 - eyeSize / 2, headY + cellSize / 3 - eyeSize / 2, eyeSize, eyeSize);
+    private Rectangle getScrubBarBounds() {
+        renderer.setSize(getWidth(), getHeight());
+        return renderer.getScrubBarBounds();
     }
 
     /**
-     * Draw the food
+     * Forget the snapshot shown, so the next one is rendered in full even if
+     * its sequence number follows, e.g. when switching to another game
      */
-    private void drawFood(Graphics2D g2d) {
-        g2d.setColor(FOOD_COLOR);
-        int x = food.getX() * cellSize;
-        int y = food.getY() * cellSize;
-        g2d.fillOval(x + 2, y + 2, cellSize - 4, cellSize - 4);
+    public void resetSnapshot() {
+        snapshot = null;
+        sequence = -1;
+        renderer.clearSnapshot();
     }
 
     /**
-     * Draw the score
+     * Show a game snapshot, rendering the next frame into the back buffer.
+     * If the snapshot directly follows the previous one, only the cells
+     * that changed are re-rendered and the area around them is repainted in
+     * a single paint; resets, pausing, game over and skipped snapshots
+     * repaint the whole panel.
+     * Must be called on the EDT; the snapshot must stay unchanged until the
+     * next call (as with SnapshotExchange.acquire()).
      */
-    private void drawScore(Graphics2D g2d) {
-        g2d.setColor(TEXT_COLOR);
-        g2d.setFont(new Font("Arial", Font.BOLD, 16));
-        g2d.drawString("Score: " + score, 10, 25);
+    public void updateGameState(GameSnapshot snapshot) {
+        if (snapshot == this.snapshot && snapshot.getSequence() == sequence) {
+            // Nothing was published since the last update
+            return;
+        }
+        BoardChanges changes = snapshot.getChanges();
+        boolean fullRepaint = snapshot.getSequence() != sequence + 1 || changes.isFull()
+                || snapshot.isGameOver() || snapshot.isPaused()
+                || snapshot.isGameOver() != renderer.isGameOver() || snapshot.isPaused() != renderer.isPaused();
+        boolean scoreChanged = snapshot.getScore() != renderer.getScore();
+
+        this.snapshot = snapshot;
+        this.sequence = snapshot.getSequence();
+        if (snapshot.getInputNanos() != shownInputNanos) {
+            shownInputNanos = snapshot.getInputNanos();
+            unpaintedInputNanos = shownInputNanos;
+        }
+        fullRepaint |= renderer.setSnapshot(snapshot);
+
+        if (fullRepaint || !renderChangedCells(changes)) {
+            // Render the whole board now; painting just shows it
+            renderBackBuffer();
+            repaint();
+            return;
+        }
+
+        // Repaint only the area around the changed cells and the score, in
+        // one paint so the frame is painted and measured once
+        Rectangle dirty = scoreChanged ? renderer.getScoreBounds() : null;
+        for (int i = 0; i < changes.size(); i++) {
+            Rectangle cell = renderer.getCellBounds(changes.getX(i), changes.getY(i));
+            if (dirty == null) {
+                dirty = cell;
+            } else {
+                dirty.add(cell);
+            }
+        }
+        if (dirty != null) {
+            paintImmediately(dirty);
+        }
     }
 
     /**
-     * Draw game over message
+     * Paint the game
      */
-    private void drawGameOver(Graphics2D g2d) {
-        String message = "Game Over";
-        String subMessage = "Press 'R' to restart or 'M' for menu";
-
-        g2d.setColor(new Color(0, 0, 0, 150)); // Semi-transparent background
-        g2d.fillRect(0, 0, getWidth(), getHeight());
+    @Override
+    protected void paintComponent(Graphics g) {
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Graphics2D g2d = (Graphics2D) g;
+        prepareRenderer();
 
-        g2d.setColor(Color.RED);
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+        // Re-render if the back buffer is missing or its contents were lost
+        if (backBuffer == null || backBuffer.validate(getGraphicsConfiguration()) != VolatileImage.IMAGE_OK) {
+            renderBackBuffer();
+        }
 
-        // Center the message
-        FontMetrics fm = g2d.getFontMetrics();
-        int messageWidth = fm.stringWidth(message);
-        int messageX = (getWidth() - messageWidth) / 2;
-        int messageY = getHeight() / 2;
+        if (backBuffer != null) {
+            g2d.drawImage(backBuffer, 0, 0, null);
+            if (backBuffer.contentsLost()) {
+                repaint();
+            }
+        } else {
+            // Not displayable yet, render directly
+            renderer.renderBoard(g2d);
+        }
 
-        g2d.drawString(message, messageX, messageY);
+        // Draw score, replay position and game over or pause message
+        renderer.renderOverlays(g2d);
 
-        // Sub message
-        g2d.setFont(new Font("Arial", Font.PLAIN, 16));
-        fm = g2d.getFontMetrics();
-        int subMessageWidth = fm.stringWidth(subMessage);
-        int subMessageX = (getWidth() - subMessageWidth) / 2;
+        long end = System.nanoTime();
+        Metrics.PAINT.record(end - start);
+        if (unpaintedInputNanos != 0) {
+            Metrics.INPUT_TO_RENDER.record(end - unpaintedInputNanos);
+            unpaintedInputNanos = 0;
+        }
 
-        g2d.setColor(Color.WHITE);
-        g2d.drawString(subMessage, subMessageX, messageY + 40);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sequence = sequence;
+            event.fullRender = fullRenderSincePaint;
+            event.snakeLength = snapshot != null ? snapshot.getSnake().length() : 0;
+            event.commit();
+        }
+        fullRenderSincePaint = false;
     }
 
     /**
-     * Draw pause message
+     * Render the whole board into the back buffer
      */
-    private void drawPaused(Graphics2D g2d) {
-        String message = "Paused";
-        String subMessage = "Press 'P' to resume";
-
-        g2d.setColor(new Color(0, 0, 0, 150)); // Semi-transparent background
-        g2d.fillRect(0, 0, getWidth(), getHeight());
-
-        g2d.setColor(Color.YELLOW);
-        g2d.setFont(new Font("Arial", Font.BOLD, 40));
+    private void renderBackBuffer() {
+        fullRenderSincePaint = true;
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
 
-        // Center the message
-        FontMetrics fm = g2d.getFontMetrics();
-        int messageWidth = fm.stringWidth(message);
-        int messageX = (getWidth() - messageWidth) / 2;
-        int messageY = getHeight() / 2;
+        prepareRenderer();
+        do {
+            if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height
+                    || backBuffer.validate(getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer = createVolatileImage(width, height);
+                if (backBuffer == null) {
+                    return;
+                }
+            }
+
+            Graphics2D g2d = backBuffer.createGraphics();
+            try {
+                renderer.renderBoard(g2d);
+            } finally {
+                g2d.dispose();
+            }
+        } while (backBuffer.contentsLost());
+    }
 
-        g2d.drawString(message, messageX, messageY);
+    /**
+     * Re-render only the changed cells in the back buffer
+     * @return false if the back buffer is not usable and the whole board has to be rendered
+     */
+    private boolean renderChangedCells(BoardChanges changes) {
+        if (backBuffer == null || backBuffer.validate(getGraphicsConfiguration()) != VolatileImage.IMAGE_OK) {
+            return false;
+        }
 
-        // Sub message
-        g2d.setFont(new Font("Arial", Font.PLAIN, 16));
-        fm = g2d.getFontMetrics();
-        int subMessageWidth = fm.stringWidth(subMessage);
-        int subMessageX = (getWidth() - subMessageWidth) / 2;
+        prepareRenderer();
+        Graphics2D g2d = backBuffer.createGraphics();
+        try {
+            renderer.renderChangedCells(g2d, changes);
+        } finally {
+            g2d.dispose();
+        }
+        return !backBuffer.contentsLost();
+    }
 
-        g2d.setColor(Color.WHITE);
-        g2d.drawString(subMessage, subMessageX, messageY + 40);
+    /**
+     * Match the renderer to the panel's size and graphics configuration
+     */
+    private void prepareRenderer() {
+        renderer.setGraphicsConfiguration(getGraphicsConfiguration());
+        renderer.setSize(getWidth(), getHeight());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,476 @@
+package view;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import model.BoardChanges;
+import model.GameSnapshot;
+import model.SnakeBuffer;
+
+/**
+ * Draws game snapshots onto any Graphics2D: the GamePanel's back buffer
+ * and screen, or a BufferedImage with no display at all (it works with
+ * java.awt.headless=true).
+ * Static layers (background grid and the pause / game over overlays) are
+ * rendered once per size into cached images and blitted, and the snake and
+ * food are copied from a SpriteAtlas of pre-rendered tiles.
+ * A renderer keeps references to the snapshot it shows, so it must only be
+ * used by one thread at a time.
+ */
+public class GameRenderer {
+    // Snapshot being shown, and its game elements
+    private GameSnapshot snapshot;
+    private SnakeBuffer snake;
+    private int headX;
+    private int headY;
+    private boolean hasFood;
+    private int foodX;
+    private int foodY;
+
+    // Game state
+    private boolean isGameOver;
+    private boolean isWon;
+    private boolean isPaused;
+    private int score;
+    private String scoreText = "Score: 0";
+
+    // Replay position for the scrub bar, no bar while replayTicks is 0
+    private long replayTick;
+    private long replayTicks;
+    private boolean replayPlaying;
+
+    // Colors
+    private final Color BACKGROUND_COLOR = Color.BLACK;
+    private final Color SNAKE_HEAD_COLOR = Color.GREEN;
+    private final Color SNAKE_BODY_COLOR = new Color(0, 180, 0);
+    private final Color FOOD_COLOR = Color.RED;
+    private final Color GRID_COLOR = new Color(20, 20, 20);
+    private final Color TEXT_COLOR = Color.WHITE;
+    private final Color OVERLAY_COLOR = new Color(0, 0, 0, 150); // Semi-transparent background
+    private final Color SCRUB_COLOR = new Color(0, 180, 0, 200);
+
+    // Area covered by the score text
+    private final Rectangle SCORE_BOUNDS = new Rectangle(0, 0, 200, 32);
+    private final int SCRUB_BAR_HEIGHT = 18;
+
+    // Fonts
+    private final Font SCORE_FONT = new Font("Arial", Font.BOLD, 16);
+    private final Font MESSAGE_FONT = new Font("Arial", Font.BOLD, 40);
+    private final Font SUB_MESSAGE_FONT = new Font("Arial", Font.PLAIN, 16);
+
+    // Game board dimensions
+    private int boardWidth;
+    private int boardHeight;
+    private int cellSize;
+
+    // Size of the area drawn on, and the configuration to create images for
+    private int width;
+    private int height;
+    private GraphicsConfiguration graphicsConfiguration;
+
+    // Cached static layers
+    private BufferedImage backgroundLayer;
+    private SpriteAtlas atlas;
+    private BufferedImage gameOverLayer;
+    private BufferedImage wonLayer;
+    private BufferedImage pausedLayer;
+
+    /**
+     * Set the size of the area drawn on; the overlays cover all of it
+     */
+    public void setSize(int width, int height) {
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            clearLayers();
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Set the graphics configuration to create cached images compatible
+     * with, null (the default) for plain BufferedImages
+     */
+    public void setGraphicsConfiguration(GraphicsConfiguration gc) {
+        if (gc != graphicsConfiguration) {
+            graphicsConfiguration = gc;
+            clearLayers();
+            atlas = null;
+        }
+    }
+
+    /**
+     * Drop the cached layers, so they are rendered again on next use
+     */
+    private void clearLayers() {
+        backgroundLayer = null;
+        gameOverLayer = null;
+        wonLayer = null;
+        pausedLayer = null;
+    }
+
+    /**
+     * Show a game snapshot; the snapshot must stay unchanged while it is
+     * being drawn
+     * @return true if the board size changed, so everything has to be drawn again
+     */
+    public boolean setSnapshot(GameSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.snake = snapshot.getSnake();
+        this.headX = snapshot.getHeadX();
+        this.headY = snapshot.getHeadY();
+        this.hasFood = snapshot.hasFood();
+        this.foodX = snapshot.getFoodX();
+        this.foodY = snapshot.getFoodY();
+        this.isGameOver = snapshot.isGameOver();
+        this.isWon = snapshot.isWon();
+        this.isPaused = snapshot.isPaused();
+
+        if (snapshot.getScore() != score) {
+            score = snapshot.getScore();
+            scoreText = "Score: " + score;
+        }
+        if (snapshot.getBoardWidth() != boardWidth || snapshot.getBoardHeight() != boardHeight
+                || snapshot.getCellSize() != cellSize) {
+            boardWidth = snapshot.getBoardWidth();
+            boardHeight = snapshot.getBoardHeight();
+            cellSize = snapshot.getCellSize();
+            backgroundLayer = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forget the snapshot shown
+     */
+    public void clearSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * Show the position of a replay in the scrub bar
+     * @param tick the tick shown
+     * @param ticks the length of the replay, 0 to hide the scrub bar
+     * @param playing false to mark the replay as paused
+     */
+    public void setReplayPosition(long tick, long ticks, boolean playing) {
+        replayTick = tick;
+        replayTicks = ticks;
+        replayPlaying = playing;
+    }
+
+    // Read-only accessors
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    /**
+     * Area covered by the score text
+     */
+    public Rectangle getScoreBounds() {
+        return new Rectangle(SCORE_BOUNDS);
+    }
+
+    /**
+     * Area covered by the scrub bar, at the bottom
+     */
+    public Rectangle getScrubBarBounds() {
+        return new Rectangle(0, height - SCRUB_BAR_HEIGHT, width, SCRUB_BAR_HEIGHT);
+    }
+
+    /**
+     * Area covered by a board cell
+     */
+    public Rectangle getCellBounds(int x, int y) {
+        return new Rectangle(x * cellSize, y * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Draw a whole frame: the board and the overlays
+     */
+    public void render(Graphics2D g2d) {
+        renderBoard(g2d);
+        renderOverlays(g2d);
+    }
+
+    /**
+     * Render the background, food and snake
+     */
+    public void renderBoard(Graphics2D g2d) {
+        // Draw the background and grid
+        g2d.drawImage(getBackgroundLayer(), 0, 0, null);
+
+        // Draw game elements
+        if (snapshot != null && snapshot.getSequence() > 0) {
+            SpriteAtlas atlas = getAtlas();
+            if (hasFood) {
+                drawFood(g2d, atlas);
+            }
+            drawSnake(g2d, atlas);
+        }
+    }
+
+    /**
+     * Re-render only the changed cells on a board rendered for the previous
+     * snapshot. Changed cells are cleared, then the food and the snake
+     * segments near the head and tail (the only ones whose tiles can change
+     * in a tick) are drawn again. Tiles are opaque, so redrawing an
+     * unchanged one is harmless.
+     */
+    public void renderChangedCells(Graphics2D g2d, BoardChanges changes) {
+        SpriteAtlas atlas = getAtlas();
+        for (int i = 0; i < changes.size(); i++) {
+            atlas.drawTile(g2d, SpriteAtlas.EMPTY, changes.getX(i) * cellSize, changes.getY(i) * cellSize);
+        }
+        if (hasFood) {
+            drawFood(g2d, atlas);
+        }
+
+        // Every tick changes at least two cells, so this covers every
+        // segment that was a head since the last update
+        int last = snake.length() - 1;
+        for (int i = Math.min(last - 1, changes.size()); i > 0; i--) {
+            drawSegment(g2d, atlas, i);
+        }
+        drawSegment(g2d, atlas, last);
+        drawHead(g2d, atlas);
+    }
+
+    /**
+     * Draw the score, the scrub bar and the game over or pause message
+     */
+    public void renderOverlays(Graphics2D g2d) {
+        // Draw score
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        drawScore(g2d);
+
+        // Draw replay position
+        if (replayTicks > 0) {
+            drawScrubBar(g2d);
+        }
+
+        // Draw game over or pause message
+        if (isGameOver) {
+            if (isWon) {
+                if (wonLayer == null) {
+                    wonLayer = createMessageLayer("You Win!", Color.RED, "Press 'R' to restart or 'M' for menu");
+                }
+                g2d.drawImage(wonLayer, 0, 0, null);
+            } else {
+                if (gameOverLayer == null) {
+                    gameOverLayer = createMessageLayer("Game Over", Color.RED, "Press 'R' to restart or 'M' for menu");
+                }
+                g2d.drawImage(gameOverLayer, 0, 0, null);
+            }
+        } else if (isPaused) {
+            if (pausedLayer == null) {
+                pausedLayer = createMessageLayer("Paused", Color.YELLOW, "Press 'P' to resume");
+            }
+            g2d.drawImage(pausedLayer, 0, 0, null);
+        }
+    }
+
+    /**
+     * Get the sprite atlas for the current cell size, building it on first use
+     */
+    private SpriteAtlas getAtlas() {
+        if (atlas == null || atlas.getCellSize() != cellSize) {
+            atlas = new SpriteAtlas(cellSize, graphicsConfiguration, BACKGROUND_COLOR, GRID_COLOR,
+                    SNAKE_HEAD_COLOR, SNAKE_BODY_COLOR, FOOD_COLOR);
+        }
+        return atlas;
+    }
+
+    /**
+     * Get the background with the grid, rendering it on first use
+     */
+    private BufferedImage getBackgroundLayer() {
+        if (backgroundLayer == null) {
+            backgroundLayer = createLayer(Transparency.OPAQUE);
+            Graphics2D g2d = backgroundLayer.createGraphics();
+            try {
+                g2d.setColor(BACKGROUND_COLOR);
+                g2d.fillRect(0, 0, backgroundLayer.getWidth(), backgroundLayer.getHeight());
+                drawGrid(g2d);
+            } finally {
+                g2d.dispose();
+            }
+        }
+        return backgroundLayer;
+    }
+
+    /**
+     * Create an image the size of the area drawn on
+     */
+    private BufferedImage createLayer(int transparency) {
+        int width = Math.max(1, this.width);
+        int height = Math.max(1, this.height);
+        if (graphicsConfiguration != null) {
+            return graphicsConfiguration.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Draw the grid
+     */
+    private void drawGrid(Graphics2D g2d) {
+        if (cellSize <= 0) {
+            return;
+        }
+        g2d.setColor(GRID_COLOR);
+
+        // Draw vertical lines
+        for (int x = 0; x <= boardWidth; x += cellSize) {
+            g2d.drawLine(x, 0, x, boardHeight);
+        }
+
+        // Draw horizontal lines
+        for (int y = 0; y <= boardHeight; y += cellSize) {
+            g2d.drawLine(0, y, boardWidth, y);
+        }
+    }
+
+    /**
+     * Draw the snake
+     */
+    private void drawSnake(Graphics2D g2d, SpriteAtlas atlas) {
+        // Draw body segments and tail (index 0 is the head)
+        for (int i = 1; i < snake.length(); i++) {
+            drawSegment(g2d, atlas, i);
+        }
+
+        drawHead(g2d, atlas);
+    }
+
+    /**
+     * Draw the i-th body segment, or the tail if it is the last one
+     */
+    private void drawSegment(Graphics2D g2d, SpriteAtlas atlas, int i) {
+        int x = snake.getX(i);
+        int y = snake.getY(i);
+        int connections = connection(x, y, snake.getX(i - 1), snake.getY(i - 1));
+
+        int tile;
+        if (i == snake.length() - 1) {
+            tile = SpriteAtlas.tail(connections);
+        } else {
+            tile = SpriteAtlas.body(connections | connection(x, y, snake.getX(i + 1), snake.getY(i + 1)));
+        }
+        atlas.drawTile(g2d, tile, x * cellSize, y * cellSize);
+    }
+
+    /**
+     * Draw the snake head
+     */
+    private void drawHead(Graphics2D g2d, SpriteAtlas atlas) {
+        int x = headX;
+        int y = headY;
+
+        // The head has not been added to the snake if it just ran into itself
+        int neck = x == snake.getX(0) && y == snake.getY(0) ? 1 : 0;
+        int connection = connection(x, y, snake.getX(neck), snake.getY(neck));
+
+        atlas.drawTile(g2d, SpriteAtlas.head(connection), x * cellSize, y * cellSize);
+    }
+
+    /**
+     * Side of a cell on which an adjacent cell lies, taking wall wrapping into account
+     */
+    private int connection(int x, int y, int neighbourX, int neighbourY) {
+        if (neighbourX == x) {
+            int rows = boardHeight / cellSize;
+            return neighbourY == (y + rows - 1) % rows ? SpriteAtlas.UP : SpriteAtlas.DOWN;
+        }
+        int columns = boardWidth / cellSize;
+        return neighbourX == (x + columns - 1) % columns ? SpriteAtlas.LEFT : SpriteAtlas.RIGHT;
+    }
+
+    /**
+     * Draw the food
+     */
+    private void drawFood(Graphics2D g2d, SpriteAtlas atlas) {
+        atlas.drawTile(g2d, SpriteAtlas.FOOD, foodX * cellSize, foodY * cellSize);
+    }
+
+    /**
+     * Draw the score
+     */
+    private void drawScore(Graphics2D g2d) {
+        g2d.setColor(TEXT_COLOR);
+        g2d.setFont(SCORE_FONT);
+        g2d.drawString(scoreText, 10, 25);
+    }
+
+    /**
+     * Draw the scrub bar with the replay position
+     */
+    private void drawScrubBar(Graphics2D g2d) {
+        Rectangle bar = getScrubBarBounds();
+        g2d.setColor(OVERLAY_COLOR);
+        g2d.fillRect(bar.x, bar.y, bar.width, bar.height);
+        g2d.setColor(SCRUB_COLOR);
+        g2d.fillRect(bar.x, bar.y, (int) (bar.width * (double) replayTick / replayTicks), bar.height);
+
+        g2d.setColor(TEXT_COLOR);
+        g2d.setFont(SUB_MESSAGE_FONT);
+        String text = (replayPlaying ? "" : "Paused  ") + replayTick + " / " + replayTicks;
+        g2d.drawString(text, bar.x + 6, bar.y + bar.height - 4);
+    }
+
+    /**
+     * Render a message overlay (game over, paused) into its own layer
+     */
+    private BufferedImage createMessageLayer(String message, Color messageColor, String subMessage) {
+        BufferedImage layer = createLayer(Transparency.TRANSLUCENT);
+        Graphics2D g2d = layer.createGraphics();
+        try {
+            int width = layer.getWidth();
+            int height = layer.getHeight();
+
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setColor(OVERLAY_COLOR);
+            g2d.fillRect(0, 0, width, height);
+
+            g2d.setColor(messageColor);
+            g2d.setFont(MESSAGE_FONT);
+
+            // Center the message
+            FontMetrics fm = g2d.getFontMetrics();
+            int messageWidth = fm.stringWidth(message);
+            int messageX = (width - messageWidth) / 2;
+            int messageY = height / 2;
+
+            g2d.drawString(message, messageX, messageY);
+
+            // Sub message
+            g2d.setFont(SUB_MESSAGE_FONT);
+            fm = g2d.getFontMetrics();
+            int subMessageWidth = fm.stringWidth(subMessage);
+            int subMessageX = (width - subMessageWidth) / 2;
+
+            g2d.setColor(TEXT_COLOR);
+            g2d.drawString(subMessage, subMessageX, messageY + 40);
+        } finally {
+            g2d.dispose();
+        }
+        return layer;
+    }
+}
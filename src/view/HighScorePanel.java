@@ -60,6 +60,21 @@ public class HighScorePanel extends JPanel {
         setBackground(new Color(230, 230, 230));
     }
 
+    /**
+     * Show that the high scores are still being loaded
+     */
+    public void showLoading() {
+        scoresPanel.removeAll();
+        JLabel loadingLabel = new JLabel("Loading high scores...");
+        loadingLabel.setFont(new Font("Arial", Font.PLAIN, 18));
+        loadingLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        scoresPanel.add(loadingLabel);
+
+        // Update UI
+        scoresPanel.revalidate();
+        scoresPanel.repaint();
+    }
+
     /**
      * Update high scores display
      */
@@ -12,6 +12,7 @@ public class MenuPanel extends JPanel {
 
     private JButton playButton;
     private JButton highScoresButton;
+    private JButton replayButton;
     private JLabel titleLabel;
 
     /**
@@ -34,17 +35,20 @@ public class MenuPanel extends JPanel {
         // Create buttons
         playButton = new JButton("Play Game");
         highScoresButton = new JButton("High Scores");
+        replayButton = new JButton("Watch Replay");
 
         // Style buttons
         playButton.setFont(new Font("Arial", Font.BOLD, 20));
         highScoresButton.setFont(new Font("Arial", Font.BOLD, 20));
+        replayButton.setFont(new Font("Arial", Font.BOLD, 20));
 
         // Add buttons to panel
         JPanel buttonPanel = new JPanel();
-        buttonPanel.setLayout(new GridLayout(2, 1, 0, 20));
+        buttonPanel.setLayout(new GridLayout(3, 1, 0, 20));
         buttonPanel.add(playButton);
         buttonPanel.add(highScoresButton);
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(50, 150, 150, 150));
+        buttonPanel.add(replayButton);
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(50, 150, 100, 150));
 
         // Add components to panel
         add(titleLabel, BorderLayout.NORTH);
@@ -67,4 +71,11 @@ public class MenuPanel extends JPanel {
     public void setHighScoreButtonListener(ActionListener listener) {
         highScoresButton.addActionListener(listener);
     }
+
+    /**
+     * Set listener for the watch replay button
+     */
+    public void setReplayButtonListener(ActionListener listener) {
+        replayButton.addActionListener(listener);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package view;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered tiles for the board, built once per cell size: an empty
+ * cell, food, and snake head, body, corner and tail tiles for every way a
+ * segment can connect to its neighbours.
+ * All tiles are opaque (they include the background and grid lines), so
+ * drawing a tile fully replaces whatever was on the cell.
+ */
+class SpriteAtlas {
+    // Connection bits: the neighbouring segments a snake tile joins up with
+    static final int UP = 1;
+    static final int DOWN = 2;
+    static final int LEFT = 4;
+    static final int RIGHT = 8;
+
+    // Tile indices
+    static final int EMPTY = 0;
+    static final int FOOD = 1;
+    private static final int BODY_BASE = 2;
+    private static final int TAIL_BASE = BODY_BASE + 16;
+    private static final int HEAD_BASE = TAIL_BASE + 16;
+    private static final int TILE_COUNT = HEAD_BASE + 16;
+
+    private final int cellSize;
+    private final BufferedImage image;
+
+    // Colors
+    private final Color backgroundColor;
+    private final Color gridColor;
+    private final Color headColor;
+    private final Color bodyColor;
+    private final Color foodColor;
+
+    /**
+     * Constructor, renders all tiles
+     * @param gc graphics configuration to create a compatible image for, may be null
+     */
+    SpriteAtlas(int cellSize, GraphicsConfiguration gc, Color backgroundColor, Color gridColor,
+                Color headColor, Color bodyColor, Color foodColor) {
+        this.cellSize = cellSize;
+        this.backgroundColor = backgroundColor;
+        this.gridColor = gridColor;
+        this.headColor = headColor;
+        this.bodyColor = bodyColor;
+        this.foodColor = foodColor;
+
+        int width = TILE_COUNT * cellSize;
+        image = gc != null
+                ? gc.createCompatibleImage(width, cellSize, Transparency.OPAQUE)
+                : new BufferedImage(width, cellSize, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2d = image.createGraphics();
+        try {
+            renderTiles(g2d);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * Tile of a body segment (straight or corner) joining the given sides
+     */
+    static int body(int connections) {
+        return BODY_BASE + connections;
+    }
+
+    /**
+     * Tile of the tail joining the given side
+     */
+    static int tail(int connection) {
+        return TAIL_BASE + connection;
+    }
+
+    /**
+     * Tile of the head with the body on the given side
+     */
+    static int head(int connection) {
+        return HEAD_BASE + connection;
+    }
+
+    int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Draw a tile with its top left corner at the given pixel position
+     */
+    void drawTile(Graphics2D g2d, int tile, int x, int y) {
+        int sourceX = tile * cellSize;
+        g2d.drawImage(image, x, y, x + cellSize, y + cellSize,
+                sourceX, 0, sourceX + cellSize, cellSize, null);
+    }
+
+    /**
+     * Render every tile into the atlas image
+     */
+    private void renderTiles(Graphics2D g2d) {
+        for (int tile = 0; tile < TILE_COUNT; tile++) {
+            drawEmpty(g2d, tile * cellSize);
+        }
+
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Food
+        g2d.setColor(foodColor);
+        g2d.fillOval(FOOD * cellSize + 2, 2, cellSize - 4, cellSize - 4);
+
+        // Snake tiles for every single connection and every pair of connections
+        int[] sides = {UP, DOWN, LEFT, RIGHT};
+        for (int first : sides) {
+            drawSegment(g2d, tail(first) * cellSize, first, bodyColor, 3);
+            drawSegment(g2d, head(first) * cellSize, first, headColor, 1);
+            drawEyes(g2d, head(first) * cellSize, first);
+            for (int second : sides) {
+                if (second != first) {
+                    drawSegment(g2d, body(first | second) * cellSize, first | second, bodyColor, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Background with the grid lines on the top and left edge, like the
+     * full background layer
+     */
+    private void drawEmpty(Graphics2D g2d, int x) {
+        g2d.setColor(backgroundColor);
+        g2d.fillRect(x, 0, cellSize, cellSize);
+        g2d.setColor(gridColor);
+        g2d.drawLine(x, 0, x + cellSize - 1, 0);
+        g2d.drawLine(x, 0, x, cellSize - 1);
+    }
+
+    /**
+     * Rounded segment, bridged to the edges it connects to
+     */
+    private void drawSegment(Graphics2D g2d, int x, int connections, Color color, int inset) {
+        int half = cellSize / 2;
+        int size = cellSize - 2 * inset;
+
+        g2d.setColor(color);
+        g2d.fillRoundRect(x + inset, inset, size, size, 8, 8);
+
+        if ((connections & UP) != 0) {
+            g2d.fillRect(x + inset, 0, size, half);
+        }
+        if ((connections & DOWN) != 0) {
+            g2d.fillRect(x + inset, half, size, cellSize - half);
+        }
+        if ((connections & LEFT) != 0) {
+            g2d.fillRect(x, inset, half, size);
+        }
+        if ((connections & RIGHT) != 0) {
+            g2d.fillRect(x + half, inset, cellSize - half, size);
+        }
+    }
+
+    /**
+     * Eyes on the side of the head facing away from the body
+     */
+    private void drawEyes(Graphics2D g2d, int x, int body) {
+        int eyeSize = cellSize / 5;
+        int near = cellSize / 3;
+        int far = 2 * cellSize / 3;
+        int left = cellSize / 4;
+        int right = 3 * cellSize / 4;
+
+        g2d.setColor(Color.BLACK);
+        switch (body) {
+            case DOWN: // facing up
+                fillEye(g2d, x + left, near, eyeSize);
+                fillEye(g2d, x + right, near, eyeSize);
+                break;
+            case UP: // facing down
+                fillEye(g2d, x + left, far, eyeSize);
+                fillEye(g2d, x + right, far, eyeSize);
+                break;
+            case RIGHT: // facing left
+                fillEye(g2d, x + near, left, eyeSize);
+                fillEye(g2d, x + near, right, eyeSize);
+                break;
+            case LEFT: // facing right
+                fillEye(g2d, x + far, left, eyeSize);
+                fillEye(g2d, x + far, right, eyeSize);
+                break;
+        }
+    }
+
+    private void fillEye(Graphics2D g2d, int centerX, int centerY, int size) {
+        g2d.fillOval(centerX - size / 2, centerY - size / 2, size, size);
+    }
+}